@@ -0,0 +1,349 @@
+/*
+ * File: BatchAnalyzer.java
+ * Author: ConnectFourJava contributors
+ * Date: 10/17/26
+ *
+ * Purpose: This class finds the best move and its score for a large
+ * batch of positions, for analysis jobs that would otherwise call
+ * Player.move one board at a time. It
+ *   - reads each position from the columns played, numbered from 1
+ *     the way Solver takes them, e.g. "4453"
+ *   - searches each different position only once, however many times
+ *     it appears in the batch
+ *   - spreads the positions over a pool of threads, each with its own
+ *     Player, all sharing one TranspositionTable that is kept from
+ *     batch to batch
+ *   - counts positions per second
+ *
+ * Moves and scores are for the side to move. Player always searches
+ * for blue, so a position with red to move is searched with the
+ * colors swapped, as SelfPlay does. Scores are Player's: the
+ * heuristic, or near Integer.MAX_VALUE for a win it can see.
+ *
+ * All positions of an analyzer have the same board size, so that
+ * equal hashes mean equal positions and the table can be shared.
+ * Swapping the colors puts the same pieces in front of Player with
+ * either side to move, so Player keys its table on the side to move
+ * as well as the hash.
+ *
+ * Associated Files: Player.java, Position.java, TranspositionTable.java,
+ * Solver.java
+ */
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class BatchAnalyzer {
+
+	private static final int TABLE_BITS = 22;                //2^22 table slots, shared by every thread
+
+	public static final int NO_MOVE = -1;                    //the move of a position that is not playable
+
+	private static final int WIN_SCORE = Integer.MAX_VALUE - 1000;    //Player's scores beyond this are wins
+
+	private final int rows;
+	private final int cols;
+	private final int threads;
+	private final TranspositionTable table = new TranspositionTable(TABLE_BITS);
+	private final ExecutorService executor;
+
+	//each thread keeps its own player, on the shared table
+	private final ThreadLocal<Player> players;
+
+	private int positions;                                   //of the last batch
+	private int distinct;
+	private int invalid;
+	private long nanos;
+
+	/*
+	 * Creates an analyzer for rows x cols boards that searches each
+	 * position depth plies on threads threads.
+	 */
+	public BatchAnalyzer(int rows, int cols, final int depth, int threads){
+
+		this.rows = rows;
+		this.cols = cols;
+		this.threads = threads;
+
+		players = new ThreadLocal<Player>(){
+			protected Player initialValue(){
+				return new Player(Long.MAX_VALUE, depth, table);
+			}
+		};
+
+		executor = Executors.newFixedThreadPool(threads, r -> {
+			Thread t = new Thread(r, "BatchAnalyzer");
+			t.setDaemon(true);
+			return t;
+		});
+	}
+
+	/*
+	 * analyze finds the best move (numbered from 0) and score of every
+	 * position and stores them at the same index of moves and scores.
+	 * A position that is not a legal game in progress gets NO_MOVE and
+	 * score 0.
+	 */
+	public void analyze(String[] batch, int[] moves, int[] scores) throws InterruptedException {
+
+		long start = System.nanoTime();
+		int n = batch.length;
+
+		//index of each position's entry among the distinct ones
+		int[] entry = new int[n];
+		final List<Position> unique = new ArrayList<Position>();
+		long[] keys = new long[Math.max(1, n)];
+
+		//open addressing on the hash; a slot holds an entry + 1, 0 if empty
+		int size = Integer.highestOneBit(Math.max(1, 2 * n - 1)) << 1;
+		int[] slots = new int[size];
+		invalid = 0;
+
+		for(int i = 0; i < n; i++){
+
+			Position position = parse(batch[i]);
+			if (position == null){
+				entry[i] = -1;
+				invalid++;
+				continue;
+			}
+
+			long key = position.hash();
+			int slot = (int) (key ^ key >>> 32) & (size - 1);
+			while (slots[slot] != 0 && keys[slots[slot] - 1] != key)
+				slot = (slot + 1) & (size - 1);
+
+			if (slots[slot] == 0){
+				keys[unique.size()] = key;
+				unique.add(position);
+				slots[slot] = unique.size();
+			}
+			entry[i] = slots[slot] - 1;
+		}
+
+		//threads take the next position to search until none are left
+		final int[] uniqueMoves = new int[unique.size()];
+		final int[] uniqueScores = new int[unique.size()];
+		final AtomicInteger next = new AtomicInteger();
+
+		List<Future<?>> work = new ArrayList<Future<?>>();
+		for(int t = 0; t < threads; t++){
+			work.add(executor.submit(() -> {
+				Player player = players.get();
+				for(int i = next.getAndIncrement(); i < uniqueMoves.length; i = next.getAndIncrement()){
+					uniqueMoves[i] = player.move(unique.get(i));
+					uniqueScores[i] = player.lastValue();
+				}
+			}));
+		}
+
+		try {
+			for(Future<?> f : work)
+				f.get();
+		} catch (ExecutionException e) {
+			throw new RuntimeException(e.getCause());
+		}
+
+		for(int i = 0; i < n; i++){
+			moves[i] = entry[i] < 0 ? NO_MOVE : uniqueMoves[entry[i]];
+			scores[i] = entry[i] < 0 ? 0 : uniqueScores[entry[i]];
+		}
+
+		positions = n;
+		distinct = unique.size();
+		nanos = System.nanoTime() - start;
+	}
+
+	/*
+	 * parse plays the moves of s and returns the position with the side
+	 * to move as blue, or null if a move is not legal, the game is over
+	 * or the board is full.
+	 */
+	public Position parse(String s){
+
+		Position position = new Position(rows, cols);
+		int toMove = s.length() % 2 == 0 ? Position.RED : Position.BLUE;
+
+		for(int i = 0; i < s.length(); i++){
+
+			int col = s.charAt(i) - '1';
+			if (col < 0 || col >= cols || !position.canPlay(col))
+				return null;
+
+			//pieces of the side to move are blue
+			boolean mover = (i % 2 == 0 ? Position.RED : Position.BLUE) == toMove;
+			position.play(col, mover ? Position.BLUE : Position.RED);
+			if (position.wins(col))
+				return null;
+		}
+
+		return position.isFull() ? null : position;
+	}
+
+	/*
+	 * close stops the analyzer's threads, which lets their players and
+	 * the table be collected. The analyzer cannot be used afterwards.
+	 */
+	public void close(){
+		executor.shutdown();
+	}
+
+	public int positions(){ return positions; }
+
+	public int distinct(){ return distinct; }
+
+	public int invalid(){ return invalid; }
+
+	public double seconds(){ return nanos / 1e9; }
+
+	/*
+	 * positionsPerSecond returns how fast the last batch went, counting
+	 * repeated positions every time they appeared.
+	 */
+	public double positionsPerSecond(){
+		return nanos == 0 ? 0 : positions * 1e9 / nanos;
+	}
+
+	/*
+	 * check analyzes pairs of random 6x7 positions through one analyzer
+	 * and returns how many of the wins and losses it reports Solver
+	 * disagrees with. There should be none. The first of a pair has red
+	 * to move; once blue replies, its search can reach the pieces of the
+	 * second, an even-length game with its colors swapped and blue to
+	 * move, so both sides to move meet in the shared table.
+	 */
+	public static int check(int depth, int threads, int pairs, long seed) throws InterruptedException {
+
+		Random random = new Random(seed);
+		BatchAnalyzer analyzer = new BatchAnalyzer(6, 7, depth, threads);
+		Solver solver = new Solver();
+
+		String[] batch = new String[2 * pairs];
+		for(int i = 0; i < pairs; i++){
+
+			String odd;
+			String even;
+			do {
+				//a game of 10 to 24 pieces, and the same moves taken two at a
+				//time in the other order, without the last
+				StringBuilder a = new StringBuilder();
+				StringBuilder b = new StringBuilder();
+				for(int n = 5 + random.nextInt(8); n > 0; n--){
+					char first = (char) ('1' + random.nextInt(7));
+					char second = (char) ('1' + random.nextInt(7));
+					a.append(first).append(second);
+					b.append(second).append(first);
+				}
+				even = a.toString();
+				odd = b.substring(0, b.length() - 1);
+			} while (analyzer.parse(even) == null || analyzer.parse(odd) == null);
+
+			batch[2 * i] = odd;
+			batch[2 * i + 1] = even;
+		}
+
+		int[] moves = new int[batch.length];
+		int[] scores = new int[batch.length];
+		try {
+			analyzer.analyze(batch, moves, scores);
+		} finally {
+			analyzer.close();
+		}
+
+		int wrong = 0;
+		for(int i = 0; i < batch.length; i++){
+
+			if (Math.abs(scores[i]) <= WIN_SCORE)
+				continue;
+
+			Position position = new Position(6, 7);
+			for(int j = 0; j < batch[i].length(); j++)
+				position.play(batch[i].charAt(j) - '1', j % 2 == 0 ? Position.RED : Position.BLUE);
+
+			int exact = solver.solve(position);
+			if (scores[i] > 0 ? exact <= 0 : exact >= 0){
+				System.err.println(batch[i] + ": analyzer " + scores[i] + ", solver " + exact);
+				wrong++;
+			}
+		}
+
+		return wrong;
+	}
+
+	/*
+	 * Reads positions from standard input, one per line with blank
+	 * lines skipped, and writes each with its best move (numbered from
+	 * 1, 0 if none) and score. Totals go to standard error.
+	 * Usage: java BatchAnalyzer [depth] [threads] [batch] [rows] [cols] < positions
+	 *    or: java BatchAnalyzer check [depth] [threads] [pairs]
+	 */
+	public static void main(String[] args) throws IOException, InterruptedException {
+
+		if (args.length > 0 && args[0].equals("check")){
+			int depth = args.length > 1 ? Integer.parseInt(args[1]) : 8;
+			int threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+			int pairs = args.length > 3 ? Integer.parseInt(args[3]) : 400;
+
+			int wrong = check(depth, threads, pairs, 5);
+			System.out.println(wrong == 0 ? "ok" : wrong + " wrong wins or losses");
+			System.exit(wrong == 0 ? 0 : 1);
+		}
+
+		int depth = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+		int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+		int batchSize = args.length > 2 ? Integer.parseInt(args[2]) : 100000;
+		int rows = args.length > 3 ? Integer.parseInt(args[3]) : 6;
+		int cols = args.length > 4 ? Integer.parseInt(args[4]) : 7;
+
+		BatchAnalyzer analyzer = new BatchAnalyzer(rows, cols, depth, threads);
+		BufferedReader in = new BufferedReader(new InputStreamReader(System.in, StandardCharsets.US_ASCII));
+		PrintWriter out = new PrintWriter(System.out);
+
+		String[] batch = new String[batchSize];
+		int[] moves = new int[batchSize];
+		int[] scores = new int[batchSize];
+		long total = 0;
+		long distinct = 0;
+		double seconds = 0;
+
+		for(;;){
+
+			int n = 0;
+			String line;
+			while (n < batchSize && (line = in.readLine()) != null){
+				line = line.trim();
+				if (!line.isEmpty())                     //a blank line is not a position
+					batch[n++] = line;
+			}
+			if (n == 0)
+				break;
+
+			String[] part = n == batchSize ? batch : Arrays.copyOf(batch, n);
+			analyzer.analyze(part, moves, scores);
+
+			for(int i = 0; i < n; i++)
+				out.println(part[i] + " " + (moves[i] + 1) + " " + scores[i]);
+			out.flush();
+
+			total += n;
+			distinct += analyzer.distinct();
+			seconds += analyzer.seconds();
+		}
+
+		System.err.printf("%d positions (%d distinct per batch, summed) at depth %d on %d threads: %.1f s, %.0f positions/s%n",
+				total, distinct, depth, threads, seconds, seconds == 0 ? 0 : total / seconds);
+		analyzer.close();
+	}
+}
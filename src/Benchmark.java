@@ -0,0 +1,272 @@
+/*
+ * File: Benchmark.java
+ * Author: ConnectFourJava contributors
+ * Date: 10/17/26
+ *
+ * Purpose: This class times the parts of the engine that a game spends
+ * its time in, so a change to the engine can be checked against the
+ * numbers from before it. For each board size it builds a fixed corpus
+ * of opening, midgame and endgame positions and times, per position:
+ *   - fromBoard: building a Position from a board, which scans every
+ *     window to score it, like evaluating a board from scratch
+ *   - playUndo: finding the landing row, playing a piece in every
+ *     column and taking it back, which keeps the evaluation up to date
+ *   - endGame: looking for a line of four over the whole board
+ *   - lastMoveWin: looking for a line of four through one piece
+ *   - move: a whole Player.move at each fixed depth, starting from an
+ *     empty transposition table each time
+ *
+ * Each benchmark is run for a few warmup rounds first so the JIT has
+ * compiled it, then for the measured rounds; the median round is
+ * printed. Results are summed into a field that is printed at the end,
+ * so the JIT cannot throw the work away.
+ *
+ * Associated Files: Player.java, Position.java
+ */
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+
+public class Benchmark {
+
+	private static final long ROUND_NANOS = 200000000L;      //length of one timed round
+	private static final int WARMUP_ROUNDS = 3;
+
+	//plies played before each kind of position, as a fraction of the board
+	private static final String[] PHASES = { "opening", "midgame", "endgame" };
+	private static final double[] PHASE_FILL = { 0.1, 0.35, 0.65 };
+	private static final int POSITIONS_PER_PHASE = 8;
+
+	private static long sink;                                //keeps results alive
+
+	private interface Op {
+		long run(int i);
+	}
+
+	/*
+	 * corpus returns count positions of a board size with about fill of
+	 * the cells played and blue to move, where nobody has won or can
+	 * win with their next piece, so the search has something to do.
+	 * The moves come from a fixed seed so every run uses the same
+	 * positions.
+	 */
+	static List<Position> corpus(int rows, int cols, double fill, int count, long seed){
+
+		Random random = new Random(seed);
+		List<Position> positions = new ArrayList<Position>();
+		int plies = (int) (rows * cols * fill) | 1;              //odd, so blue is to move
+
+		while (positions.size() < count){
+
+			Position position = new Position(rows, cols);
+			boolean over = false;
+
+			while (position.moves() < plies && !over){
+				int col = random.nextInt(cols);
+				if (!position.canPlay(col))
+					continue;
+
+				int player = position.moves() % 2 == 0 ? 1 : 10;
+				position.play(col, player);
+				over = position.wins(col) || position.isFull();
+			}
+
+			if (!over && !threat(position))
+				positions.add(position);
+		}
+
+		return positions;
+	}
+
+	/*
+	 * threat returns true if either player could win by playing a
+	 * piece somewhere on position.
+	 */
+	private static boolean threat(Position position){
+
+		for(int col = 0; col < position.cols(); col++){
+
+			if (!position.canPlay(col))
+				continue;
+
+			for(int player = 1; player <= 10; player += 9){
+				position.play(col, player);
+				boolean wins = position.wins(col);
+				position.undo(col);
+				if (wins)
+					return true;
+			}
+		}
+
+		return false;
+	}
+
+	/*
+	 * board turns a position back into the GUI's board array.
+	 */
+	static int[][] board(Position position){
+
+		int[][] board = new int[position.rows()][position.cols()];
+		for(int row = 0; row < position.rows(); row++){
+			for(int col = 0; col < position.cols(); col++)
+				board[row][col] = position.cell(row, col);
+		}
+
+		return board;
+	}
+
+	/*
+	 * time runs op over and over, cycling through size inputs, and
+	 * returns the median nanoseconds per call over rounds rounds.
+	 */
+	private static double time(Op op, int size, int rounds){
+
+		double[] results = new double[rounds];
+
+		for(int round = -WARMUP_ROUNDS; round < rounds; round++){
+
+			long calls = 0;
+			long start = System.nanoTime();
+			long elapsed;
+
+			do {
+				for(int i = 0; i < size; i++)
+					sink += op.run(i);
+				calls += size;
+				elapsed = System.nanoTime() - start;
+			} while (elapsed < ROUND_NANOS);
+
+			if (round >= 0)
+				results[round] = (double) elapsed / calls;
+		}
+
+		Arrays.sort(results);
+		return results[rounds / 2];
+	}
+
+	/*
+	 * timeMove returns the median milliseconds per Player.move at depth
+	 * over the positions, with the player reset before each move and
+	 * the reset not counted.
+	 */
+	private static double timeMove(List<Position> positions, int depth, int rounds){
+
+		Player player = new Player(Long.MAX_VALUE, depth);
+		double[] results = new double[rounds];
+
+		for(int round = -1; round < rounds; round++){
+
+			long elapsed = 0;
+			for(Position position : positions){
+				player.reset();
+				long start = System.nanoTime();
+				sink += player.move(position.copy());
+				elapsed += System.nanoTime() - start;
+			}
+
+			if (round >= 0)
+				results[round] = elapsed / 1e6 / positions.size();
+		}
+
+		Arrays.sort(results);
+		return results[rounds / 2];
+	}
+
+	/*
+	 * run times every benchmark on one board size and prints a line
+	 * for each.
+	 */
+	static void run(int rows, int cols, int maxDepth, int rounds){
+
+		final Player player = new Player();
+
+		for(int phase = 0; phase < PHASES.length; phase++){
+
+			final List<Position> positions = corpus(rows, cols, PHASE_FILL[phase], POSITIONS_PER_PHASE, rows * 31 + cols * 7 + phase);
+			final int[][][] boards = new int[positions.size()][][];
+			final int[][] lastRows = new int[positions.size()][2];     //row and column of some piece
+
+			for(int i = 0; i < boards.length; i++){
+				boards[i] = board(positions.get(i));
+				Position position = positions.get(i);
+				for(int col = 0; col < cols; col++){
+					if (position.height(col) > 0){
+						lastRows[i][0] = rows - position.height(col);
+						lastRows[i][1] = col;
+						break;
+					}
+				}
+			}
+
+			String label = rows + "x" + cols + " " + PHASES[phase];
+
+			print(label, "fromBoard", time(new Op(){
+				public long run(int i){
+					return Position.fromBoard(boards[i]).score();
+				}
+			}, boards.length, rounds), "ns");
+
+			print(label, "playUndo", time(new Op(){
+				public long run(int i){
+					Position position = positions.get(i);
+					long sum = 0;
+					for(int col = 0; col < position.cols(); col++){
+						if (!position.canPlay(col))
+							continue;
+						sum += position.playableRow(col);
+						position.play(col, 10);
+						sum += position.score();
+						position.undo(col);
+					}
+					return sum;
+				}
+			}, positions.size(), rounds), "ns");
+
+			print(label, "endGame", time(new Op(){
+				public long run(int i){
+					return player.endGame(boards[i])[0][0];
+				}
+			}, boards.length, rounds), "ns");
+
+			final BitSet winMask = new BitSet();
+			print(label, "lastMoveWin", time(new Op(){
+				public long run(int i){
+					return player.lastMoveWin(boards[i], lastRows[i][0], lastRows[i][1], winMask) ? winMask.cardinality() : 0;
+				}
+			}, boards.length, rounds), "ns");
+
+			for(int depth = 2; depth <= maxDepth; depth += 2)
+				print(label, "move depth " + depth, timeMove(positions, depth, rounds), "ms");
+		}
+	}
+
+	private static void print(String label, String name, double value, String unit){
+		System.out.printf("%-16s %-14s %12.3f %s/op%n", label, name, value, unit);
+	}
+
+	/*
+	 * Runs the benchmarks.
+	 * Usage: java Benchmark [maxDepth] [rounds] [rows cols ...]
+	 * With no sizes given it uses 6x7, 5x6 and 7x8.
+	 */
+	public static void main(String[] args){
+
+		int maxDepth = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+		int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+
+		int[] sizes = { 6, 7, 5, 6, 7, 8 };
+		if (args.length > 3){
+			sizes = new int[(args.length - 2) / 2 * 2];
+			for(int i = 0; i < sizes.length; i++)
+				sizes[i] = Integer.parseInt(args[i + 2]);
+		}
+
+		for(int i = 0; i < sizes.length; i += 2)
+			run(sizes[i], sizes[i + 1], maxDepth, rounds);
+
+		System.out.println("(checksum " + sink + ")");
+	}
+}
@@ -0,0 +1,206 @@
+/*
+ * File: BoardView.java
+ * Author: ConnectFourJava contributors
+ * Date: 10/17/26
+ *
+ * Purpose: This class draws the Connect Four board as one component
+ * instead of one button per square. It keeps what each square shows
+ * and paints the discs itself, so a move only repaints the column it
+ * changed, a click is turned into a column by dividing its x position,
+ * and a large board is still only one component.
+ *
+ * Squares are given as (row, col) with row 0 at the top, like the
+ * board array in Connect4, and hold 0 (empty), 1 (red) or 10 (blue).
+ *
+ * Given a MoveChannel, a mouse press sends the column under it there
+ * as a CLICK message. Given an EngineStats, every paint reports how
+ * long it took.
+ *
+ * Associated Files: Connect4.java, MoveChannel.java, EngineStats.java
+ */
+
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.util.BitSet;
+import javax.swing.JComponent;
+
+public class BoardView extends JComponent {
+
+	private static final long serialVersionUID = 1L;
+
+	private static final int MAX_CELL = 80;                  //pixels per square on small boards
+	private static final int MAX_SIZE = 800;                 //larger boards get smaller squares
+
+	private final int rows;
+	private final int cols;
+	private final int[][] cells;
+	private BitSet winMask = new BitSet();                   //bit (row * cols + col) for a winning square
+	private volatile MoveChannel moves;                      //where clicks go, if anywhere
+	private volatile EngineStats metrics;                    //where paint times go, if anywhere
+
+	public BoardView(int rows, int cols){
+
+		this.rows = rows;
+		this.cols = cols;
+		this.cells = new int[rows][cols];
+
+		int cell = Math.max(8, Math.min(MAX_CELL, MAX_SIZE / Math.max(rows, cols)));
+		setPreferredSize(new Dimension(cols * cell, rows * cell));
+		setMinimumSize(getPreferredSize());
+		setOpaque(true);
+
+		addMouseListener(new MouseAdapter(){
+			public void mousePressed(MouseEvent e){
+				MoveChannel channel = moves;
+				int col = columnAt(e.getX());
+				if (channel != null && col >= 0)
+					channel.offer(MoveChannel.message(MoveChannel.CLICK, 0, col));
+			}
+		});
+	}
+
+	/*
+	 * setMoveChannel makes a press on a column send it to moves.
+	 */
+	public void setMoveChannel(MoveChannel moves){
+		this.moves = moves;
+	}
+
+	/*
+	 * setMetrics makes every paint report its time to metrics, or stops
+	 * reporting if metrics is null.
+	 */
+	public void setMetrics(EngineStats metrics){
+		this.metrics = metrics;
+	}
+
+	/*
+	 * setCell shows piece at (row, col) and repaints that column.
+	 */
+	public void setCell(int row, int col, int piece){
+
+		cells[row][col] = piece;
+		repaintColumn(col);
+	}
+
+	/*
+	 * setWinMask marks the squares of a winning line, as filled in by
+	 * Player.lastMoveWin, or clears the marks if mask is empty.
+	 */
+	public void setWinMask(BitSet mask){
+
+		BitSet changed = (BitSet) winMask.clone();
+		changed.xor(mask);
+		winMask = (BitSet) mask.clone();
+
+		for(int col = 0; col < cols; col++){
+			for(int row = 0; row < rows; row++){
+				if (changed.get(bit(row, col))){
+					repaintColumn(col);
+					break;
+				}
+			}
+		}
+	}
+
+	/*
+	 * clear empties every square and repaints the board.
+	 */
+	public void clear(){
+
+		for(int[] row : cells){
+			for(int col = 0; col < cols; col++)
+				row[col] = 0;
+		}
+		winMask.clear();
+		repaint();
+	}
+
+	/*
+	 * columnAt returns the column under x, or -1 if x is off the board.
+	 */
+	public int columnAt(int x){
+
+		if (x < 0 || x >= getWidth())
+			return -1;
+
+		return x * cols / getWidth();
+	}
+
+	private void repaintColumn(int col){
+		repaint(left(col), 0, left(col + 1) - left(col), getHeight());
+	}
+
+	//edges of columns and rows, spread evenly over the current size
+	private int left(int col){
+		return col * getWidth() / cols;
+	}
+
+	private int top(int row){
+		return row * getHeight() / rows;
+	}
+
+	private int bit(int row, int col){
+		return row * cols + col;
+	}
+
+	/*
+	 * paintComponent paints only the columns inside the clip, which
+	 * is one column after setCell, and reports how long that took.
+	 */
+	protected void paintComponent(Graphics g){
+
+		long start = System.nanoTime();
+
+		Graphics2D g2 = (Graphics2D) g;
+		g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+
+		Rectangle clip = g.getClipBounds();
+		if (clip == null)
+			clip = new Rectangle(0, 0, getWidth(), getHeight());
+
+		int first = Math.max(0, columnAt(clip.x));
+		int last = columnAt(Math.min(clip.x + clip.width, getWidth()) - 1);
+		if (last < 0)
+			last = cols - 1;
+
+		for(int col = first; col <= last; col++){
+
+			int x = left(col);
+			int w = left(col + 1) - x;
+
+			for(int row = 0; row < rows; row++){
+
+				int y = top(row);
+				int h = top(row + 1) - y;
+
+				g.setColor(Color.YELLOW);
+				g.fillRect(x, y, w, h);
+				g.setColor(Color.LIGHT_GRAY);
+				g.drawRect(x, y, w - 1, h - 1);
+
+				int piece = cells[row][col];
+				if (piece == 0)
+					continue;
+
+				int pad = Math.max(1, Math.min(w, h) / 10);
+				g.setColor(piece == 1 ? Color.RED : Color.BLUE);
+				g.fillOval(x + pad, y + pad, w - 2 * pad, h - 2 * pad);
+
+				if (winMask.get(bit(row, col))){
+					g.setColor(Color.WHITE);
+					g.drawOval(x + 2 * pad, y + 2 * pad, w - 4 * pad, h - 4 * pad);
+				}
+			}
+		}
+
+		if (metrics != null)
+			metrics.rendered(System.nanoTime() - start);
+	}
+}
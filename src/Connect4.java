@@ -8,54 +8,76 @@
  * game and listens for click events by the human players, then
  * calls the computer player to make its move and continues
  * until a winner is then found.
+ *
+ * The game loop in main only waits for moves and keeps the board.
+ * The computer searches on a worker thread and pieces fall on the
+ * event dispatch thread, driven by a Swing Timer; both report back
+ * to the loop through a MoveChannel, like the board view and the
+ * buttons do, so the window stays responsive and Quit and Reset work
+ * at any time.
  * 
  * Platform: This was developed on Mac OS X 10.8.3 in Eclipse IDE
  * 
- * Associated Files: Player.java, JBox.java, JCanvas.java, JEventQueue.java
+ * Associated Files: Player.java, BoardView.java, JBox.java, JCanvas.java, MoveChannel.java,
+ * OpeningBook.java, EngineStats.java
  */
 
 import java.awt.Color;
 import java.awt.Font;
-import java.util.EventObject;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.util.BitSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.awt.*;
 import javax.swing.*;
+import javax.swing.Timer;
 
 public class Connect4
 {
 	private static JFrame frame = new JFrame("Connect 4");
 	private static JPanel format = new JPanel();
 	private static int[][] board;
-	private static JPanel totalBoard;
+	private static BoardView view;
 
-	// Standard board size is 6 rows by 7 columns but AI will work with any size > 4
+	// Standard board size is 6 rows by 7 columns with lines of 4 (k) to win, but
+	// the AI works with any size and k that fits, boards past 8x7 included
 	public static int rows = 6;
 	public static int cols = 7;
+	public static int k = 4;
 
-	private static JButton[][] input;
+	// live statistics, published over JMX
+	private static EngineStats metrics;
+
+	// what the game loop is waiting for
+	private static final int HUMAN = 0;          // red to click a column
+	private static final int DROPPING = 1;       // a piece to finish falling
+	private static final int THINKING = 2;       // the computer to pick a column
+	private static final int OVER = 3;
+
+	// the piece falling now, if any, and the thread the computer searches on
+	private static Timer dropTimer;
+	private static final ExecutorService ai = Executors.newSingleThreadExecutor(r -> {
+		Thread t = new Thread(r, "Connect4 AI");
+		t.setDaemon(true);
+		return t;
+	});
+
+	// every move and control the game loop acts on
+	private static final MoveChannel moves = new MoveChannel(10);
 
 	/*
-	 * makeInput makes the board of buttons all yellow
-	 * and not clicked.
+	 * makeInput makes the board view, all yellow and empty.
+	 * It is one component that paints the discs itself.
 	 */
 
-	private JPanel makeInput()
+	private BoardView makeInput()
 	{
-		input = new JButton[rows][cols];
-		GridLayout grid = new GridLayout(rows, cols);
-		totalBoard = new JPanel(grid);
-		for(int r = 0; r < rows; r++)
-		{
-			for(int c = 0; c < cols; c++)
-			{
-				input[r][c] = new JButton("");
-				JBox.setSize(input[r][c],80,80);
-				input[r][c].setBorder(BorderFactory.createLineBorder(Color.LIGHT_GRAY));
-				input[r][c].setBackground(Color.YELLOW);
-				input[r][c].setOpaque(true);
-				totalBoard.add(input[r][c]);
-			}
-		}
-		return totalBoard;
+		view = new BoardView(rows, cols);
+		return view;
 	}
 
 	/*
@@ -67,34 +89,13 @@ public class Connect4
 	}
 
 	/*
-	 * update updates the board to show the integer
-	 * in each index of each array to show either
-	 * player 1 (red), player 2 (blue), or empty.
+	 * empty empties the board to reset it. The view is
+	 * cleared in place, so nothing is laid out again.
 	 */
-	private void update(JBox bottom)
-	{
-		format.remove(totalBoard);
-		format.remove(bottom);
-		format.add(totalBoard);
-		format.add(bottom);
-		frame.add(format);
-		frame.setVisible(true);
-	}
-
-	/*
-	 * empty empties the board to reset it.
-	 */
-	private void reset(JBox top, JBox bottom)
+	private void reset()
 	{
 		setBoard();
-		format.remove(top);
-		format.remove(totalBoard);
-		format.remove(bottom);
-		format.add(top);
-		format.add(makeInput());
-		format.add(bottom);
-		frame.add(format);
-		frame.setVisible(true);
+		view.clear();
 	}
 
 
@@ -120,39 +121,82 @@ public class Connect4
 	//	}
 
 	/*
-	 * gravity simulates the fall of pieces. Loops through until
-	 * there are no empty spaces below it and just makes the piece
-	 * fall 1 row down at a time.
+	 * place puts player's piece on the lowest empty row of col and
+	 * returns that row. Only the board changes; drop shows it.
 	 */
-	private void gravity(int col, JBox b, Color c)
+	private static int place(int col, int player)
 	{
-		int row = 0;
-		input[row][col].setBackground(c);
-		//update(b);
-		while(row < rows - 1 && board[row + 1][col] == 0)
+		int row = rows - 1;
+		while(board[row][col] != 0)
 		{
-			try {                                         // this will pause execution for 90 milliseconds (0.1 sec)
-				Thread.sleep(90);                         
-			} catch(InterruptedException ex) {
-				Thread.currentThread().interrupt();
-			}
-			input[row][col].setBackground(Color.YELLOW);
-			row++;
-			input[row][col].setBackground(c);
-			update(b);
+			row--;
 		}
-		if(c.equals(Color.RED))
+		board[row][col] = player;
+		return row;
+	}
+
+	/*
+	 * drop simulates the fall of a piece down col to row, one row
+	 * every 90 milliseconds, then calls done. It must run on the event
+	 * dispatch thread: a Swing Timer moves the piece, so nothing
+	 * sleeps and the window keeps painting in between.
+	 */
+	private void drop(final int col, final int row, final Color c, final Runnable done)
+	{
+		final int piece = c.equals(Color.RED) ? 1 : 10;
+		view.setCell(0, col, piece);
+		if (row == 0)
 		{
-			board[row][col] = 1;
+			done.run();
+			return;
 		}
-		else
+
+		dropTimer = new Timer(90, null);
+		dropTimer.addActionListener(new ActionListener()
 		{
-			board[row][col] = 10;
+			private int at = 0;
+
+			public void actionPerformed(ActionEvent e)
+			{
+				view.setCell(at, col, 0);
+				at++;
+				view.setCell(at, col, piece);
+
+				if (at == row)
+				{
+					dropTimer.stop();
+					done.run();
+				}
+			}
+		});
+		dropTimer.start();
+	}
+
+	/*
+	 * onEdt runs r on the event dispatch thread and waits for it.
+	 */
+	private static void onEdt(Runnable r)
+	{
+		try {
+			SwingUtilities.invokeAndWait(r);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (InvocationTargetException e) {
+			throw new RuntimeException(e.getCause());
 		}
-		//frame.setVisible(false);
-		//frame.setVisible(true);
-		SwingUtilities.updateComponentTreeUI(frame);
+	}
 
+	/*
+	 * copyBoard returns a copy of the board for another thread to read.
+	 */
+	private static int[][] copyBoard()
+	{
+		int[][] copy = new int[rows][];
+		for(int r = 0; r < rows; r++)
+		{
+			copy[r] = board[r].clone();
+		}
+		return copy;
 	}
 
 	/*
@@ -163,11 +207,27 @@ public class Connect4
 	{
 		Connect4 con = new Connect4();
 		Player p = new Player();
+		p.setLineLength(k);
+
+		metrics = EngineStats.register("Connect4");
+		p.setMetrics(metrics);
+
+		// use an opening book if one has been generated with
+		// java OpeningBook connect4.book
+		File bookFile = new File("connect4.book");
+		if (bookFile.exists()) {
+			try {
+				p.setOpeningBook(OpeningBook.open(bookFile));
+			} catch (IOException e) {
+				System.out.println("could not read " + bookFile + ": " + e);
+			}
+		}
+
 		con.setBoard();
 		con.makeInput();
-		int[][] winLocation;
+		BitSet winMask = new BitSet(rows * cols);    // bit (row * cols + col) set for each winning square
 
-		frame.setSize(Math.max(rows * 100, 500) , Math.max(cols * 100, 500));
+		frame.setSize(Math.max(Math.min(rows * 100, 1000), 500) , Math.max(Math.min(cols * 100, 1000), 500));
 		frame.setDefaultCloseOperation(WindowConstants.EXIT_ON_CLOSE);
 
 		//JPanel totalBoard = con.makeInput();
@@ -204,118 +264,184 @@ public class Connect4
 		//  con.setupBoard(top, bottom, board, 6, 2, 10);
 
 		format.add(top);
-		format.add(totalBoard);
+		format.add(view);
 		format.add(bottom);
 
 		frame.add(format);
 		frame.setVisible(true);
 
-		JEventQueue events = new JEventQueue();
-		events.listenTo(button1,"Quit");
-		events.listenTo(button2,"Reset");
-		for(int r = 0; r < rows; r++)
-		{
-			for(int c = 0; c < cols; c++)
-			{
-				events.listenTo(input[r][c], "" + c);
-			}
-		}
+		metrics.setEventQueueDepth(moves::size);
+		button1.addActionListener(e -> moves.send(MoveChannel.message(MoveChannel.CONTROL, 0, MoveChannel.QUIT)));
+		button2.addActionListener(e -> moves.send(MoveChannel.message(MoveChannel.CONTROL, 0, MoveChannel.RESET)));
+		view.setMoveChannel(moves);
+		view.setMetrics(metrics);
 
+		int state = HUMAN;
+		int generation = 0;              // counts resets, to drop moves from older games
+		int dropRow = 0;                 // where the falling piece will land
+		int dropCol = 0;
+
+		// think about red's first move while waiting for it. The player is
+		// only used from the AI thread, apart from stop
+		final int[][] start = copyBoard();
+		ai.execute(() -> p.ponder(start));
+		metrics.gameStarted();
 
 		while(true)
 		{
-			EventObject event = events.waitEvent();
-			String name;
-			name = JEventQueue.getName(event);
-			switch (name) {
-				case "Quit":
-					System.exit(100);
-				case "Reset":
-					con.reset(top, bottom);
-					for (int r = 0; r < rows; r++) {
-						for (int c = 0; c < cols; c++) {
-							events.listenTo(input[r][c], "" + c);
-						}
-					}
+			int message = moves.take();
+			int kind = MoveChannel.kind(message);
+			int column = MoveChannel.column(message);
+
+			if (message == MoveChannel.NONE) {
+				// take only gives up when this thread is interrupted, which
+				// means the game is being shut down. Taking again would
+				// return NONE at once and spin
+				p.stop();
+				SwingUtilities.invokeLater(frame::dispose);
+				return;
+			}
+			else if (kind == MoveChannel.CONTROL && column == MoveChannel.QUIT) {
+				System.exit(100);
+			}
+			else if (kind == MoveChannel.CONTROL && column == MoveChannel.RESET) {
+				p.stop();
+				generation++;
+				if (state != OVER)
+					metrics.gameEnded();
+				metrics.gameStarted();
+
+				onEdt(() -> {
+					if (dropTimer != null)
+						dropTimer.stop();
+					con.reset();
 					label2.setText("Playing...");
-					break;
-				default:
-					if ((label2.getText()).equals("Playing...")) {
-						int playerMove = Integer.parseInt(name);
-						while (isFull(playerMove)) {
-							event = events.waitEvent();
-							name = JEventQueue.getName(event);
-							playerMove = Integer.parseInt(name);
-						}
+				});
 
-						con.gravity(playerMove, bottom, Color.RED);
+				state = HUMAN;
+				final int[][] empty = copyBoard();
+				ai.execute(() -> p.ponder(empty));
+			}
+			else if (kind == MoveChannel.DROPPED) {
+				if (!MoveChannel.sameGeneration(message, generation) || state != DROPPING)
+					continue;
+
+				int piece = board[dropRow][dropCol];
+
+				// only the lines through the new piece can have been completed
+				boolean won = p.lastMoveWin(board, dropRow, dropCol, winMask);
+
+				final String result;
+				if (won)
+					result = piece == 1 ? "Player Red wins!" : "Player Blue wins!";
+				else if (boardFull())
+					result = "It's a draw!";
+				else
+					result = null;
+
+				if (result != null) {
+					state = OVER;
+					metrics.gameEnded();
+					final BitSet mask = (BitSet) winMask.clone();    // winMask is reused by the next game
+					SwingUtilities.invokeLater(() -> {
+						label2.setText(result);
+						view.setWinMask(mask);
+					});
+				}
+				else if (piece == 1) {
+					state = THINKING;
+					final int[][] snapshot = copyBoard();
+					final int gen = generation;
+					final int since = p.stops();    // a Reset before the search starts still stops it
+					ai.execute(() -> {
+						int reply = -1;
+						try {
+							reply = p.move(snapshot, 10, since);
+						} finally {
+							// the loop waits in THINKING for this, so it goes even if move throws
+							moves.send(MoveChannel.message(MoveChannel.AI, gen, reply));
+						}
+					});
+				}
+				else {
+					state = HUMAN;
+					final int[][] snapshot = copyBoard();
+					ai.execute(() -> p.ponder(snapshot));    // search red's replies while waiting for one
+				}
+			}
+			else if (kind == MoveChannel.AI) {
+				if (!MoveChannel.sameGeneration(message, generation) || state != THINKING)
+					continue;
+
+				if (column < 0 || isFull(column)) {
+					// the search failed: play the open column nearest the
+					// center so the game goes on, or call a draw if none is
+					column = centerOpenColumn();
+					if (column < 0) {
+						state = OVER;
+						metrics.gameEnded();
+						SwingUtilities.invokeLater(() -> label2.setText("It's a draw!"));
+						continue;
 					}
+				}
 
-					//printArray(board);
-
-					winLocation = p.endGame(board);
-
-					if (winLocation[0][0] == -1)
-						label2.setText("Playing...");
-					else {
-						if (board[winLocation[0][0]][winLocation[0][1]] == 1)
-							label2.setText("Player Red wins!");
-					/*
-					 * Highlight the squares red at
-					 * board[winLocation[0][0]][winLocation[0][1]]
-					 * board[winLocation[1][0]][winLocation[1][1]]
-					 * board[winLocation[2][0]][winLocation[2][1]]
-					 * board[winLocation[3][0]][winLocation[3][1]]
-					 */
-						else if (board[winLocation[0][0]][winLocation[0][1]] == 10)
-							label2.setText("Player Blue wins!");
-					/*
-					 * Highlight the squares blue at
-					 * board[winLocation[0][0]][winLocation[0][1]]
-					 * board[winLocation[1][0]][winLocation[1][1]]
-					 * board[winLocation[2][0]][winLocation[2][1]]
-					 * board[winLocation[3][0]][winLocation[3][1]]
-					 */
-					}
+				state = DROPPING;
+				dropCol = column;
+				dropRow = place(column, 10);
+				dropLater(con, dropCol, dropRow, Color.BLUE, generation);
+			}
+			else if (kind == MoveChannel.CLICK) {
+				// a press anywhere in a column plays there
+				if (state == HUMAN && !isFull(column)) {
+					state = DROPPING;
+					dropCol = column;
+					dropRow = place(column, 1);
+					dropLater(con, dropCol, dropRow, Color.RED, generation);
+				}
+
+				//printArray(board);
+			}
+		}
+	}
 
-					if ((label2.getText()).equals("Playing...")) {
-						int nextMove = p.move(board, 10);
-						while (isFull(nextMove)) {
-							nextMove = p.move(board, 10);
-						}
+	/*
+	 * dropLater starts dropping a piece that has already been placed
+	 * at row, col on the event dispatch thread, and sends the game
+	 * loop a DROPPED message when it lands.
+	 */
+	private static void dropLater(final Connect4 con, final int col, final int row, final Color c,
+			final int generation)
+	{
+		SwingUtilities.invokeLater(() -> con.drop(col, row, c,
+				() -> moves.send(MoveChannel.message(MoveChannel.DROPPED, generation, col))));
+	}
 
-						con.gravity(nextMove, bottom, Color.BLUE);
-					}
+	/*
+	 * boardFull returns true if every column is full.
+	 */
+	private static boolean boardFull()
+	{
+		for(int c = 0; c < cols; c++)
+		{
+			if (!isFull(c))
+				return false;
+		}
+		return true;
+	}
 
-					//printArray(board);
-
-					winLocation = p.endGame(board);
-
-					if (winLocation[0][0] == -1)
-						label2.setText("Playing...");
-					else {
-						if (board[winLocation[0][0]][winLocation[0][1]] == 1)
-							label2.setText("Player Red wins!");
-						/*
-						 * Highlight the squares red at
-						 * board[winLocation[0][0]][winLocation[0][1]]
-						 * board[winLocation[1][0]][winLocation[1][1]]
-						 * board[winLocation[2][0]][winLocation[2][1]]
-						 * board[winLocation[3][0]][winLocation[3][1]]
-						 */
-						else if (board[winLocation[0][0]][winLocation[0][1]] == 10)
-							label2.setText("Player Blue wins!");
-						/*
-						 * Highlight the squares blue at
-						 * board[winLocation[0][0]][winLocation[0][1]]
-						 * board[winLocation[1][0]][winLocation[1][1]]
-						 * board[winLocation[2][0]][winLocation[2][1]]
-						 * board[winLocation[3][0]][winLocation[3][1]]
-						 */
-					}
-					break;
-			}
+	/*
+	 * centerOpenColumn returns the column nearest the center that is
+	 * not full, or -1 if every column is.
+	 */
+	private static int centerOpenColumn()
+	{
+		int best = -1;
+		for(int c = 0; c < cols; c++)
+		{
+			if (!isFull(c) && (best < 0 || Math.abs(2 * c - cols + 1) < Math.abs(2 * best - cols + 1)))
+				best = c;
 		}
+		return best;
 	}
 
 	/*
@@ -0,0 +1,197 @@
+/*
+ * File: EngineStats.java
+ * Author: ConnectFourJava contributors
+ * Date: 10/17/26
+ *
+ * Purpose: This class collects live statistics about the engine and
+ * the game loop and publishes them as an MBean, so they can be watched
+ * from JConsole, VisualVM or any JMX client without a profiler:
+ *   - move latency percentiles over the last LATENCY_SAMPLES moves
+ *   - search depth reached, last and average
+ *   - nodes searched and nodes per second of search time
+ *   - games in progress and games played
+ *   - events waiting for the game loop
+ *   - time spent redrawing the board
+ *
+ * Players report to it after every move once given it with
+ * Player.setMetrics, and the game loops report games and render times.
+ * Any number of threads can report at once.
+ *
+ * Associated Files: EngineStatsMBean.java, Player.java, Connect4.java,
+ * SelfPlay.java
+ */
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntSupplier;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+public class EngineStats implements EngineStatsMBean {
+
+	private static final int LATENCY_SAMPLES = 1024;         //moves kept for the percentiles
+
+	//the latest move latencies in nanoseconds, oldest overwritten first
+	private final long[] latencies = new long[LATENCY_SAMPLES];
+	private long moves;
+	private long depthSum;
+	private int depthCount;
+	private int lastDepth;
+	private long totalNodes;
+	private long searchNanos;
+
+	private final AtomicInteger activeGames = new AtomicInteger();
+	private final AtomicLong gamesPlayed = new AtomicLong();
+
+	private final AtomicLong renders = new AtomicLong();
+	private final AtomicLong renderNanos = new AtomicLong();
+	private volatile long lastRenderNanos;
+
+	private volatile IntSupplier eventQueueDepth;
+
+	/*
+	 * register creates stats and publishes them on the platform MBean
+	 * server as connect4:type=EngineStats,name=name.
+	 */
+	public static EngineStats register(String name){
+
+		EngineStats stats = new EngineStats();
+		try {
+			ManagementFactory.getPlatformMBeanServer().registerMBean(stats,
+					new ObjectName("connect4:type=EngineStats,name=" + ObjectName.quote(name)));
+		} catch (JMException e) {
+			System.out.println("could not register engine stats: " + e);
+		}
+
+		return stats;
+	}
+
+	/*
+	 * moveDone records a move that took nanos, searched nodes nodes
+	 * and finished an iteration depth plies deep, 0 if it did not
+	 * search (a book move, say).
+	 */
+	public synchronized void moveDone(long nanos, int depth, long nodes){
+
+		latencies[(int) (moves % LATENCY_SAMPLES)] = nanos;
+		moves++;
+
+		if (depth > 0){
+			lastDepth = depth;
+			depthSum += depth;
+			depthCount++;
+		}
+
+		totalNodes += nodes;
+		searchNanos += nanos;
+	}
+
+	public void gameStarted(){
+		activeGames.incrementAndGet();
+	}
+
+	public void gameEnded(){
+		activeGames.decrementAndGet();
+		gamesPlayed.incrementAndGet();
+	}
+
+	/*
+	 * rendered records a redraw of the board that took nanos.
+	 */
+	public void rendered(long nanos){
+		renders.incrementAndGet();
+		renderNanos.addAndGet(nanos);
+		lastRenderNanos = nanos;
+	}
+
+	/*
+	 * setEventQueueDepth gives a way to read how many events are
+	 * waiting, such as JEventQueue's size.
+	 */
+	public void setEventQueueDepth(IntSupplier depth){
+		this.eventQueueDepth = depth;
+	}
+
+	public synchronized long getMoves(){ return moves; }
+
+	public double getMoveLatencyP50(){ return latency(0.50); }
+
+	public double getMoveLatencyP90(){ return latency(0.90); }
+
+	public double getMoveLatencyP99(){ return latency(0.99); }
+
+	public double getMoveLatencyMax(){ return latency(1); }
+
+	/*
+	 * latency returns the move latency at percentile p (0 to 1) of the
+	 * kept samples, in milliseconds.
+	 */
+	private double latency(double p){
+
+		long[] sorted;
+		synchronized (this){
+			sorted = Arrays.copyOf(latencies, (int) Math.min(moves, LATENCY_SAMPLES));
+		}
+
+		if (sorted.length == 0)
+			return 0;
+
+		Arrays.sort(sorted);
+		int index = (int) Math.ceil(p * sorted.length) - 1;
+		return sorted[Math.max(index, 0)] / 1e6;
+	}
+
+	public synchronized int getLastDepth(){ return lastDepth; }
+
+	public synchronized double getAverageDepth(){
+		return depthCount == 0 ? 0 : (double) depthSum / depthCount;
+	}
+
+	public synchronized double getNodesPerSecond(){
+		return searchNanos == 0 ? 0 : totalNodes * 1e9 / searchNanos;
+	}
+
+	public synchronized long getTotalNodes(){ return totalNodes; }
+
+	public int getActiveGames(){ return activeGames.get(); }
+
+	public long getGamesPlayed(){ return gamesPlayed.get(); }
+
+	public int getEventQueueDepth(){
+
+		IntSupplier depth = eventQueueDepth;
+		return depth == null ? 0 : depth.getAsInt();
+	}
+
+	public double getLastRenderTime(){ return lastRenderNanos / 1e6; }
+
+	public double getAverageRenderTime(){
+
+		long count = renders.get();
+		return count == 0 ? 0 : renderNanos.get() / 1e6 / count;
+	}
+
+	/*
+	 * reset starts the move and render statistics over. Games in
+	 * progress are still counted.
+	 */
+	public void reset(){
+
+		synchronized (this){
+			Arrays.fill(latencies, 0);
+			moves = 0;
+			depthSum = 0;
+			depthCount = 0;
+			lastDepth = 0;
+			totalNodes = 0;
+			searchNanos = 0;
+		}
+
+		gamesPlayed.set(0);
+		renders.set(0);
+		renderNanos.set(0);
+		lastRenderNanos = 0;
+	}
+}
@@ -0,0 +1,44 @@
+/*
+ * File: EngineStatsMBean.java
+ * Author: ConnectFourJava contributors
+ * Date: 10/17/26
+ *
+ * Purpose: This is the management interface of EngineStats: what
+ * JConsole, VisualVM or any other JMX client sees as its attributes
+ * and operations. Times are in milliseconds.
+ *
+ * Associated Files: EngineStats.java
+ */
+
+public interface EngineStatsMBean {
+
+	long getMoves();
+
+	double getMoveLatencyP50();
+
+	double getMoveLatencyP90();
+
+	double getMoveLatencyP99();
+
+	double getMoveLatencyMax();
+
+	int getLastDepth();
+
+	double getAverageDepth();
+
+	double getNodesPerSecond();
+
+	long getTotalNodes();
+
+	int getActiveGames();
+
+	long getGamesPlayed();
+
+	int getEventQueueDepth();
+
+	double getLastRenderTime();
+
+	double getAverageRenderTime();
+
+	void reset();
+}
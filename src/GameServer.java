@@ -0,0 +1,518 @@
+/*
+ * File: GameServer.java
+ * Author: ConnectFourJava contributors
+ * Date: 10/17/26
+ *
+ * Purpose: This class serves many games of human against computer at
+ * once over TCP, from one JVM and without a window. One thread runs a
+ * Selector and does all the network work and keeps every game; the
+ * searches run on a fixed pool of worker threads, each with its own
+ * Player, and hand their moves back to the selector thread. A game
+ * only holds a thread while the computer is thinking.
+ *
+ * The work queue of the pool is bounded. When it is full a move is
+ * taken back and answered with BUSY, and the client can send it again
+ * later, so a burst of moves cannot pile up without limit. A client
+ * that stops reading its replies is not read from either until they
+ * have been sent.
+ *
+ * The protocol is lines of ASCII text. The human is red and moves
+ * first; the computer is blue.
+ *   NEW [rows cols [k]]  start a game (6x7, 4 in a row by default)
+ *                        -> READY rows cols k
+ *   MOVE col             play col (0 on the left) -> MOVE col, the computer's reply
+ *   QUIT                 end the connection       -> BYE
+ * A game ends with WIN RED, WIN BLUE or DRAW, after the move that
+ * ended it. Anything not allowed is answered with ERR and a reason.
+ * If the computer's search fails, the game ends with ERR search failed.
+ *
+ * Associated Files: Player.java, Position.java, EngineStats.java,
+ * LoadClient.java
+ */
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+public class GameServer {
+
+	private static final int MAX_LINE = 64;                  //longest command accepted, in bytes
+	private static final int MAX_OUTPUT = 4096;              //replies a client may leave unread, in bytes
+	private static final int MAX_SIDE = 32;                  //largest rows or cols a game may ask for
+	private static final int FAILED = -2;                    //the reply of a search that threw
+
+	private final Selector selector;
+	private final ServerSocketChannel server;
+	private final ThreadPoolExecutor workers;
+	private final EngineStats metrics;
+
+	//each worker keeps its own player, and so its own table, from
+	//game to game while the games are the same size and K
+	private final ThreadLocal<Worker> players;
+
+	//work the workers hand back to the selector thread
+	private final ConcurrentLinkedQueue<Runnable> done = new ConcurrentLinkedQueue<Runnable>();
+
+	private int sessions;                                    //open connections, selector thread only
+
+	/*
+	 * Creates a server on port (0 for any free port) whose computer
+	 * searches depth plies or timeLimit milliseconds on threads worker
+	 * threads, with at most queue searches waiting for a thread.
+	 */
+	public GameServer(int port, final long timeLimit, final int depth, int threads, int queue, final EngineStats metrics)
+			throws IOException {
+
+		this.metrics = metrics;
+
+		players = new ThreadLocal<Worker>(){
+			protected Worker initialValue(){
+				Player player = new Player(timeLimit, depth);
+				player.setMetrics(metrics);
+				return new Worker(player);
+			}
+		};
+
+		workers = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+				new ArrayBlockingQueue<Runnable>(queue), r -> {
+					Thread t = new Thread(r, "GameServer worker");
+					t.setDaemon(true);
+					return t;
+				});
+
+		if (metrics != null)
+			metrics.setEventQueueDepth(() -> workers.getQueue().size());
+
+		selector = Selector.open();
+		server = ServerSocketChannel.open();
+		server.bind(new InetSocketAddress(port), 1024);
+		server.configureBlocking(false);
+		server.register(selector, SelectionKey.OP_ACCEPT);
+	}
+
+	/*
+	 * port returns the port the server listens on.
+	 */
+	public int port(){
+		return server.socket().getLocalPort();
+	}
+
+	/*
+	 * run serves connections until close is called.
+	 */
+	public void run() throws IOException {
+
+		try {
+			while (server.isOpen()){
+
+				selector.select();
+
+				Runnable task;
+				while ((task = done.poll()) != null)
+					task.run();
+
+				Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+				while (keys.hasNext()){
+
+					SelectionKey key = keys.next();
+					keys.remove();
+
+					if (!key.isValid())
+						continue;
+
+					if (key.isAcceptable()){
+						accept();
+						continue;
+					}
+
+					Session session = (Session) key.attachment();
+					try {
+						if (key.isReadable())
+							session.read();
+						if (key.isValid() && key.isWritable())
+							session.flush();
+					} catch (IOException e) {
+						session.close();
+					}
+				}
+			}
+		} catch (ClosedSelectorException e) {
+			//closed while selecting
+		}
+	}
+
+	/*
+	 * close stops the server and drops every connection.
+	 */
+	public void close() throws IOException {
+
+		server.close();
+		for(SelectionKey key : selector.keys()){
+			if (key.attachment() instanceof Session)
+				((Session) key.attachment()).close();
+		}
+		selector.close();
+		workers.shutdownNow();
+	}
+
+	private void accept() throws IOException {
+
+		SocketChannel channel;
+		while ((channel = server.accept()) != null){
+			channel.configureBlocking(false);
+			channel.socket().setTcpNoDelay(true);
+			new Session(channel);
+		}
+	}
+
+	/*
+	 * A Worker is a worker thread's player and the size and K of the
+	 * last game it searched.
+	 */
+	private static class Worker {
+
+		private final Player player;
+		private int rows;
+		private int cols;
+		private int length;
+
+		Worker(Player player){
+			this.player = player;
+		}
+
+		/*
+		 * playerFor returns the player, reset first if position is of
+		 * another size or K than the last game, so positions of
+		 * different games never share a table.
+		 */
+		Player playerFor(Position position){
+
+			if (position.rows() != rows || position.cols() != cols || position.length() != length){
+				player.reset();
+				rows = position.rows();
+				cols = position.cols();
+				length = position.length();
+			}
+
+			return player;
+		}
+	}
+
+	/*
+	 * A Session is one connection and the game being played on it.
+	 * Everything in it belongs to the selector thread; a search gets
+	 * a copy of the position.
+	 */
+	private class Session {
+
+		private final SocketChannel channel;
+		private final SelectionKey key;
+		private final ByteBuffer in = ByteBuffer.allocate(MAX_LINE);
+		private final ByteBuffer out = ByteBuffer.allocate(MAX_OUTPUT);
+
+		private Position position;                       //null until the first NEW
+		private int game;                                //counts NEWs, to drop searches of older games
+		private boolean playing;                         //a game is started and not over
+		private boolean thinking;                        //the computer is searching
+
+		Session(SocketChannel channel) throws IOException {
+
+			this.channel = channel;
+			this.key = channel.register(selector, SelectionKey.OP_READ, this);
+			sessions++;
+		}
+
+		/*
+		 * read reads what the client sent and answers every whole line.
+		 */
+		void read() throws IOException {
+
+			if (channel.read(in) < 0){
+				close();
+				return;
+			}
+
+			in.flip();
+			int start = in.position();
+			for(int i = start; i < in.limit(); i++){
+				if (in.get(i) == '\n'){
+					command(new String(in.array(), start, i - start, StandardCharsets.US_ASCII).trim());
+					start = i + 1;
+					if (!channel.isOpen())
+						return;
+				}
+			}
+			in.position(start);
+			in.compact();
+
+			if (!in.hasRemaining()){
+				send("ERR line too long");
+				flush();
+				close();
+				return;
+			}
+
+			flush();
+		}
+
+		private void command(String line){
+
+			String[] words = line.split("\\s+");
+
+			switch (words[0].toUpperCase()){
+
+				case "NEW":
+					newGame(words);
+					break;
+
+				case "MOVE":
+					if (words.length != 2)
+						send("ERR usage: MOVE col");
+					else
+						move(words[1]);
+					break;
+
+				case "QUIT":
+					send("BYE");
+					try {
+						flush();
+					} catch (IOException e) {
+						//closing anyway
+					}
+					close();
+					break;
+
+				case "":
+					break;
+
+				default:
+					send("ERR unknown command " + words[0]);
+			}
+		}
+
+		private void newGame(String[] words){
+
+			int rows = 6;
+			int cols = 7;
+			int k = Windows.LENGTH;
+			try {
+				if (words.length == 3 || words.length == 4){
+					rows = Integer.parseInt(words[1]);
+					cols = Integer.parseInt(words[2]);
+					if (words.length == 4)
+						k = Integer.parseInt(words[3]);
+				}
+				else if (words.length != 1)
+					throw new IllegalArgumentException();
+
+				if (rows < 1 || cols < 1 || rows > MAX_SIDE || cols > MAX_SIDE)
+					throw new IllegalArgumentException();
+				position = new Position(rows, cols, k);
+			} catch (IllegalArgumentException e) {
+				send("ERR usage: NEW [rows cols [k]], sides up to " + MAX_SIDE + " and a line of k that fits");
+				return;
+			}
+
+			end();
+			game++;
+			thinking = false;
+			playing = true;
+			if (metrics != null)
+				metrics.gameStarted();
+
+			send("READY " + rows + " " + cols + " " + k);
+		}
+
+		private void move(String word){
+
+			int col;
+			try {
+				col = Integer.parseInt(word);
+			} catch (NumberFormatException e) {
+				send("ERR bad column " + word);
+				return;
+			}
+
+			if (!playing){
+				send("ERR no game, send NEW");
+				return;
+			}
+			if (thinking){
+				send("ERR not your turn");
+				return;
+			}
+			if (col < 0 || col >= position.cols() || !position.canPlay(col)){
+				send("ERR cannot play " + col);
+				return;
+			}
+
+			position.play(col, Position.RED);
+			if (position.wins(col)){
+				end("WIN RED");
+				return;
+			}
+			if (position.isFull()){
+				end("DRAW");
+				return;
+			}
+
+			final Position copy = position.copy();
+			final int forGame = game;
+			try {
+				workers.execute(() -> {
+					int reply = FAILED;
+					try {
+						reply = players.get().playerFor(copy).move(copy);
+					} catch (RuntimeException e) {
+						//a player that failed may be left part way through a search
+						players.remove();
+						System.err.println("search failed: " + e);
+					} finally {
+						//the game always hears back, or it would wait forever
+						final int answer = reply;
+						done.add(() -> replied(forGame, answer));
+						selector.wakeup();
+					}
+				});
+				thinking = true;
+			} catch (RejectedExecutionException e) {
+				//every worker is busy and the queue is full
+				position.undo(col);
+				send("BUSY");
+			}
+		}
+
+		/*
+		 * replied plays the computer's move, back on the selector thread.
+		 */
+		private void replied(int forGame, int col){
+
+			if (forGame != game || !channel.isOpen())
+				return;
+
+			thinking = false;
+			if (col == FAILED){
+				send("ERR search failed");
+				end();
+			}
+			else if (col < 0 || !position.canPlay(col)){
+				end("DRAW");
+			}
+			else {
+				position.play(col, Position.BLUE);
+				send("MOVE " + col);
+				if (position.wins(col))
+					end("WIN BLUE");
+				else if (position.isFull())
+					end("DRAW");
+			}
+
+			try {
+				flush();
+			} catch (IOException e) {
+				close();
+			}
+		}
+
+		private void end(String result){
+			send(result);
+			end();
+		}
+
+		//counts the game as over if it was still being played
+		private void end(){
+
+			if (playing && metrics != null)
+				metrics.gameEnded();
+			playing = false;
+		}
+
+		/*
+		 * send queues a reply line. A client that lets MAX_OUTPUT bytes
+		 * of replies pile up is dropped.
+		 */
+		private void send(String line){
+
+			if (out.remaining() < line.length() + 1){
+				close();
+				return;
+			}
+
+			for(int i = 0; i < line.length(); i++)
+				out.put((byte) line.charAt(i));
+			out.put((byte) '\n');
+		}
+
+		/*
+		 * flush writes what it can of the queued replies. Until they
+		 * are all written the client is not read from.
+		 */
+		void flush() throws IOException {
+
+			if (!channel.isOpen())
+				return;
+
+			out.flip();
+			channel.write(out);
+			out.compact();
+
+			key.interestOps(out.position() > 0 ? SelectionKey.OP_WRITE : SelectionKey.OP_READ);
+		}
+
+		void close(){
+
+			if (!channel.isOpen())
+				return;
+
+			end();
+			game++;
+			sessions--;
+			key.cancel();
+			try {
+				channel.close();
+			} catch (IOException e) {
+				//nothing more to do
+			}
+		}
+	}
+
+	/*
+	 * sessions returns how many connections are open. It is only
+	 * exact on the selector thread.
+	 */
+	public int sessions(){
+		return sessions;
+	}
+
+	/*
+	 * Runs a server until the process is killed.
+	 * Usage: java GameServer [port] [depth] [timeLimit] [threads] [queue]
+	 */
+	public static void main(String[] args) throws IOException {
+
+		int port = args.length > 0 ? Integer.parseInt(args[0]) : 4004;
+		int depth = args.length > 1 ? Integer.parseInt(args[1]) : 8;
+		long timeLimit = args.length > 2 ? Long.parseLong(args[2]) : 200;
+		int threads = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+		int queue = args.length > 4 ? Integer.parseInt(args[4]) : 16 * threads;
+
+		EngineStats metrics = EngineStats.register("GameServer");
+		GameServer server = new GameServer(port, timeLimit, depth, threads, queue, metrics);
+
+		System.out.println("serving on port " + server.port() + ", depth " + depth + ", " + timeLimit
+				+ " ms per move, " + threads + " threads, queue " + queue);
+		server.run();
+	}
+}
@@ -5,6 +5,13 @@
 // If you find errors or have any suggestions contact me at madsr@ruc.dk
 //
 // version 1.2 : 30-10-06
+//
+// Changed for Connect4: the queue is a LinkedBlockingQueue instead of a
+// LinkedList guarded by this object's monitor, so the event dispatch
+// thread adding events never waits for the thread taking them, and
+// there are timed waits and batch draining. Each name is also given a
+// small int id when it is registered, so the game loop can tell events
+// apart without building or comparing strings.
 //----------------------------------------------------------------
 import java.awt.*; 
 import java.util.*;
@@ -12,6 +19,11 @@ import java.awt.event.*;
 import javax.swing.event.*;
 import java.util.List;
 import java.util.Arrays;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
 import javax.swing.*;
 import javax.swing.text.*;
 import javax.swing.table.*;
@@ -31,40 +43,55 @@ public class JEventQueue implements
       WindowFocusListener,WindowStateListener,FocusListener,MenuKeyListener,
       ComponentListener{
    //------------------------------------------------
-   private  Queue<EventObject> queue = new LinkedList<EventObject>();
+   // unbounded, with separate locks for adding and taking
+   private final BlockingQueue<EventObject> queue = new LinkedBlockingQueue<EventObject>();
 
    /** [Internal] */
-   public synchronized void addEvent(EventObject e){ 
-      queue.offer(e);  notify();
+   public void addEvent(EventObject e){ 
+      queue.offer(e);
    }
-   /** [Internal] */
-   public synchronized void removeEvents(String nm){
-     Object o=null;
-     for(EventObject e:queue){
-       String n=getName(e);
-       if(nm.equals(n)){o=e;break;}
+   /** [Internal] remove every waiting event with this name, in one pass */
+   public void removeEvents(String nm){
+     Integer id=nameIds.get(nm);
+     if(id!=null){
+       final int i=id;
+       queue.removeIf(e->getNameId(e)==i);
+     }else{
+       queue.removeIf(e->nm.equals(getName(e)));
      }
-     // I'm not allowed to remove them inside the loop
-     if(o!=null){
-       queue.remove(o);
-       removeEvents(nm);
-     }   
    }
    /**  */
-   public synchronized boolean hasEvent(){return queue.peek()!=null;}
-   /**  */
-   public synchronized EventObject peekEvent(){return queue.peek();}
+   public boolean hasEvent(){return queue.peek()!=null;}
    /**  */
-   public synchronized EventObject waitEvent(){
-     EventObject r=null;
-     for(;;){
-        r=queue.poll();
-        if(r!=null)return r;
-        try{
-          wait();
-        }catch(Exception e){return null;}
+   public EventObject peekEvent(){return queue.peek();}
+   /** number of events waiting */
+   public int size(){return queue.size();}
+   /** wait for the next event and remove it, null if interrupted */
+   public EventObject waitEvent(){
+     try{
+       return queue.take();
+     }catch(InterruptedException e){
+       Thread.currentThread().interrupt();
+       return null;
      }
    }
+   /** wait at most ms milliseconds for the next event, null if none came */
+   public EventObject waitEvent(long ms){
+     try{
+       return queue.poll(ms,TimeUnit.MILLISECONDS);
+     }catch(InterruptedException e){
+       Thread.currentThread().interrupt();
+       return null;
+     }
+   }
+   /** move every waiting event to c, oldest first, without waiting; returns how many */
+   public int drainEvents(Collection<? super EventObject> c){
+     return queue.drainTo(c);
+   }
+   /** move at most max waiting events to c, oldest first; returns how many */
+   public int drainEvents(Collection<? super EventObject> c,int max){
+     return queue.drainTo(c,max);
+   }
 
    //-----------------------------------------------------------
    // action listener
@@ -397,9 +424,42 @@ public class JEventQueue implements
     return s;  
    }
   private static Map<Object,String> names=new HashMap<Object,String>();
+  // ids of registered names: name -> id, id -> name, and event source -> id.
+  // Sources are held weakly so a registered component can still be collected
+  private static final Map<String,Integer> nameIds=new ConcurrentHashMap<String,Integer>();
+  private static final List<String> idNames=new CopyOnWriteArrayList<String>();
+  private static final Map<Object,Integer> sourceIds=Collections.synchronizedMap(new WeakHashMap<Object,Integer>());
+  /** id returned for events from a source with no registered name */
+  public static final int NO_ID=-1;
+
+  /** Return the id of a name, giving it the next free id the first time */
+  public static int nameId(String nm){
+     Integer id=nameIds.get(nm);
+     if(id!=null)return id;
+     synchronized(idNames){
+        id=nameIds.get(nm);
+        if(id==null){
+           id=idNames.size();
+           idNames.add(nm);
+           nameIds.put(nm,id);
+        }
+        return id;
+     }
+  }
+  /** Return the name with the given id */
+  public static String nameOf(int id){
+     return id>=0&&id<idNames.size()?idNames.get(id):"";
+  }
+  /** Return the id of the name registered for the source of the event, or NO_ID */
+  public static int getNameId(EventObject e){
+     Integer id=sourceIds.get(e.getSource());
+     return id==null?NO_ID:id;
+  }
    /** Return the name associated with the component that generated the event */
   public static String getName(EventObject e){
      Object o=e.getSource();
+     Integer id=sourceIds.get(o);
+     if(id!=null)return idNames.get(id);
      //XAux.pl("source "+o);
      if(o instanceof JComponent){
         Object v=((JComponent) o).getClientProperty("name");
@@ -422,6 +482,7 @@ public class JEventQueue implements
    
    /** register a name with a component that may generate events */
    public static void addName(Object o,String nm){
+     sourceIds.put(o,nameId(nm));
      if(o instanceof JComponent){
         ((JComponent) o).putClientProperty("name",nm);
      } else
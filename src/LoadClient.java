@@ -0,0 +1,312 @@
+/*
+ * File: LoadClient.java
+ * Author: ConnectFourJava contributors
+ * Date: 10/17/26
+ *
+ * Purpose: This class loads a GameServer with many connections at
+ * once, each playing random legal moves for red, and reports how many
+ * moves per second the server answered, how long the computer took to
+ * reply and how often the server said BUSY. Like the server it uses
+ * one thread and a Selector, so it can hold thousands of connections.
+ *
+ * A move answered with BUSY is sent again after RETRY_MILLIS.
+ *
+ * Associated Files: GameServer.java, Position.java
+ */
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Random;
+
+public class LoadClient {
+
+	private static final long RETRY_MILLIS = 20;             //wait before sending a BUSY move again
+
+	private final Selector selector;
+	private final Random random;
+	private final int rows;
+	private final int cols;
+	private final int length;
+
+	private final ArrayDeque<Connection> retries = new ArrayDeque<Connection>();
+	private int open;                                        //connections not yet finished
+
+	private long[] latencies = new long[1024];               //nanoseconds from MOVE to the reply
+	private int replies;
+	private long busy;
+	private long errors;
+	private long games;
+
+	/*
+	 * Creates a client that plays rows x cols games with lines of
+	 * length, with moves chosen from seed.
+	 */
+	public LoadClient(int rows, int cols, int length, long seed) throws IOException {
+
+		this.selector = Selector.open();
+		this.random = new Random(seed);
+		this.rows = rows;
+		this.cols = cols;
+		this.length = length;
+	}
+
+	/*
+	 * run opens connections to address, plays games games on each and
+	 * returns once every connection has finished.
+	 */
+	public void run(InetSocketAddress address, int connections, int games) throws IOException {
+
+		for(int i = 0; i < connections; i++){
+			SocketChannel channel = SocketChannel.open();
+			channel.configureBlocking(false);
+			channel.socket().setTcpNoDelay(true);
+			channel.connect(address);
+			channel.register(selector, SelectionKey.OP_CONNECT, new Connection(channel, games));
+			open++;
+		}
+
+		while (open > 0){
+
+			selector.select(RETRY_MILLIS);
+
+			long now = System.nanoTime();
+			while (!retries.isEmpty() && now - retries.peek().retryAt >= 0)
+				retries.poll().sendMove();
+
+			Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+			while (keys.hasNext()){
+
+				SelectionKey key = keys.next();
+				keys.remove();
+
+				Connection connection = (Connection) key.attachment();
+				try {
+					if (key.isConnectable()){
+						connection.channel.finishConnect();
+						key.interestOps(SelectionKey.OP_READ);
+						connection.send("NEW " + rows + " " + cols + " " + length);
+					}
+					else if (key.isReadable())
+						connection.read();
+				} catch (IOException e) {
+					errors++;
+					connection.close();
+				}
+			}
+		}
+
+		selector.close();
+	}
+
+	public int replies(){ return replies; }
+
+	public long busy(){ return busy; }
+
+	public long errors(){ return errors; }
+
+	public long games(){ return games; }
+
+	/*
+	 * latency returns the reply time at percentile p (0 to 1), in
+	 * milliseconds.
+	 */
+	public double latency(double p){
+
+		if (replies == 0)
+			return 0;
+
+		long[] sorted = Arrays.copyOf(latencies, replies);
+		Arrays.sort(sorted);
+		return sorted[Math.max((int) Math.ceil(p * replies) - 1, 0)] / 1e6;
+	}
+
+	private void replied(long nanos){
+
+		if (replies == latencies.length)
+			latencies = Arrays.copyOf(latencies, 2 * replies);
+		latencies[replies++] = nanos;
+	}
+
+	/*
+	 * A Connection plays its games one after another, keeping its own
+	 * copy of the board to choose legal moves from.
+	 */
+	private class Connection {
+
+		private final SocketChannel channel;
+		private final ByteBuffer in = ByteBuffer.allocate(256);
+		private int gamesLeft;
+
+		private Position position;
+		private int move;                                //the column sent last
+		private boolean waiting;                         //move is not answered yet
+		private long sentAt;
+		private long retryAt;
+
+		Connection(SocketChannel channel, int games){
+			this.channel = channel;
+			this.gamesLeft = games;
+		}
+
+		void read() throws IOException {
+
+			if (channel.read(in) < 0){
+				errors++;
+				close();
+				return;
+			}
+
+			in.flip();
+			int start = in.position();
+			for(int i = start; i < in.limit() && channel.isOpen(); i++){
+				if (in.get(i) == '\n'){
+					reply(new String(in.array(), start, i - start, StandardCharsets.US_ASCII).trim());
+					start = i + 1;
+				}
+			}
+			in.position(start);
+			in.compact();
+		}
+
+		private void reply(String line) throws IOException {
+
+			String[] words = line.split(" ");
+
+			switch (words[0]){
+
+				case "READY":
+					position = new Position(rows, cols, length);
+					sendMove(random.nextInt(cols));
+					break;
+
+				case "MOVE":
+					replied(System.nanoTime() - sentAt);
+					waiting = false;
+					position.play(move, Position.RED);
+					int col = Integer.parseInt(words[1]);
+					position.play(col, Position.BLUE);
+
+					//a move that ended the game is followed by the result
+					if (!position.wins(col) && !position.isFull())
+						sendMove(randomMove());
+					break;
+
+				case "BUSY":
+					busy++;
+					retryAt = System.nanoTime() + RETRY_MILLIS * 1000000;
+					retries.add(this);
+					break;
+
+				case "WIN":
+				case "DRAW":
+					if (waiting)                             //red's move ended it
+						replied(System.nanoTime() - sentAt);
+					waiting = false;
+					games++;
+					if (--gamesLeft > 0)
+						send("NEW " + rows + " " + cols + " " + length);
+					else
+						send("QUIT");
+					break;
+
+				case "BYE":
+					close();
+					break;
+
+				default:
+					errors++;
+					System.out.println("server: " + line);
+					close();
+			}
+		}
+
+		private int randomMove(){
+
+			int col;
+			do {
+				col = random.nextInt(cols);
+			} while (!position.canPlay(col));
+
+			return col;
+		}
+
+		private void sendMove(int col) throws IOException {
+			move = col;
+			sendMove();
+		}
+
+		void sendMove(){
+
+			try {
+				sentAt = System.nanoTime();
+				waiting = true;
+				send("MOVE " + move);
+			} catch (IOException e) {
+				errors++;
+				close();
+			}
+		}
+
+		/*
+		 * send writes a line. Replies are short and one line at a time
+		 * is outstanding, so it always fits the socket buffer.
+		 */
+		void send(String line) throws IOException {
+
+			if (!channel.isOpen())
+				return;
+
+			ByteBuffer buffer = ByteBuffer.wrap((line + "\n").getBytes(StandardCharsets.US_ASCII));
+			while (buffer.hasRemaining())
+				channel.write(buffer);
+		}
+
+		void close(){
+
+			if (!channel.isOpen())
+				return;
+
+			open--;
+			try {
+				channel.close();
+			} catch (IOException e) {
+				//nothing more to do
+			}
+		}
+	}
+
+	/*
+	 * Plays games against a GameServer and prints the results.
+	 * Usage: java LoadClient [host] [port] [connections] [games] [rows] [cols] [k]
+	 */
+	public static void main(String[] args) throws IOException {
+
+		String host = args.length > 0 ? args[0] : "localhost";
+		int port = args.length > 1 ? Integer.parseInt(args[1]) : 4004;
+		int connections = args.length > 2 ? Integer.parseInt(args[2]) : 1000;
+		int games = args.length > 3 ? Integer.parseInt(args[3]) : 1;
+		int rows = args.length > 4 ? Integer.parseInt(args[4]) : 6;
+		int cols = args.length > 5 ? Integer.parseInt(args[5]) : 7;
+		int k = args.length > 6 ? Integer.parseInt(args[6]) : Windows.LENGTH;
+
+		LoadClient client = new LoadClient(rows, cols, k, 1);
+
+		long start = System.nanoTime();
+		client.run(new InetSocketAddress(host, port), connections, games);
+		double seconds = (System.nanoTime() - start) / 1e9;
+
+		System.out.println(connections + " connections, " + games + " games each, " + rows + "x" + cols + ", " + k + " in a row");
+		System.out.printf("%.1f s, %d games, %.0f moves/s, %d busy, %d errors%n",
+				seconds, client.games(), client.replies() / seconds, client.busy(), client.errors());
+		System.out.printf("reply p50 %.2f ms, p99 %.2f ms, max %.2f ms%n",
+				client.latency(0.50), client.latency(0.99), client.latency(1));
+	}
+}
@@ -0,0 +1,189 @@
+/*
+ * File: MoveChannel.java
+ * Author: ConnectFourJava contributors
+ * Date: 10/17/26
+ *
+ * Purpose: This class carries game moves to the Connect4 game loop as
+ * plain ints instead of Swing event objects. Any number of threads can
+ * send (the board view, the buttons, the AI worker, the drop timer),
+ * and one thread, the game loop, receives.
+ *
+ * It is a fixed-size ring buffer. A sender claims a slot by bumping
+ * the tail with compare-and-set, writes the value and then marks the
+ * slot as published with its sequence number, so the receiver never
+ * reads a slot that is still being written. Nothing is allocated per
+ * message. The receiver parks when the channel is empty and a sender
+ * unparks it.
+ *
+ * A message packs a kind, a game generation and a column into one int:
+ *   bits 28-31  kind: CLICK, AI, DROPPED or CONTROL
+ *   bits 16-27  generation, so messages from before a reset can be
+ *               told apart (it wraps after 4096 resets)
+ *   bits 0-15   column, or QUIT or RESET for CONTROL
+ *
+ * Associated Files: Connect4.java, BoardView.java
+ */
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+public class MoveChannel {
+
+	// kinds of message
+	public static final int CLICK = 0;                       //the human picked a column
+	public static final int AI = 1;                          //the computer picked a column
+	public static final int DROPPED = 2;                     //a falling piece landed
+	public static final int CONTROL = 3;                     //QUIT or RESET
+
+	// CONTROL messages
+	public static final int QUIT = 0;
+	public static final int RESET = 1;
+
+	public static final int NONE = -1;                       //poll found nothing; no message is negative
+
+	private final int mask;
+	private final int[] values;
+	private final AtomicLongArray published;                 //sequence + 1 of the value in each slot
+	private final AtomicLong tail = new AtomicLong();        //next sequence to claim
+	private volatile long head;                              //next sequence to read
+	private volatile Thread waiter;                          //the receiver, while it is parked
+
+	/*
+	 * Creates a channel that holds up to 2^bits messages.
+	 */
+	public MoveChannel(int bits){
+
+		int size = 1 << bits;
+		mask = size - 1;
+		values = new int[size];
+		published = new AtomicLongArray(size);
+	}
+
+	/*
+	 * message packs a kind, generation and column into a message.
+	 */
+	public static int message(int kind, int generation, int column){
+		return kind << 28 | (generation & 0xFFF) << 16 | (column & 0xFFFF);
+	}
+
+	public static int kind(int message){ return message >>> 28; }
+
+	public static int generation(int message){ return message >>> 16 & 0xFFF; }
+
+	/*
+	 * column returns the column of a message, -1 included.
+	 */
+	public static int column(int message){ return (short) message; }
+
+	/*
+	 * sameGeneration compares a message's generation with a counter
+	 * that may have grown past what a message can hold.
+	 */
+	public static boolean sameGeneration(int message, int generation){
+		return generation(message) == (generation & 0xFFF);
+	}
+
+	/*
+	 * offer sends a message and returns true, or returns false at once
+	 * if the channel is full.
+	 */
+	public boolean offer(int message){
+
+		long t;
+		do {
+			t = tail.get();
+			if (t - head > mask)
+				return false;
+		} while (!tail.compareAndSet(t, t + 1));
+
+		int slot = (int) t & mask;
+		values[slot] = message;
+		published.set(slot, t + 1);
+
+		Thread w = waiter;
+		if (w != null)
+			LockSupport.unpark(w);
+
+		return true;
+	}
+
+	/*
+	 * send sends a message, waiting for room if the channel is full.
+	 */
+	public void send(int message){
+
+		while (!offer(message))
+			Thread.yield();
+	}
+
+	/*
+	 * poll returns the next message, or NONE if there is none. Only
+	 * the receiving thread may call it.
+	 */
+	public int poll(){
+
+		long h = head;
+		int slot = (int) h & mask;
+
+		if (published.get(slot) != h + 1)
+			return NONE;
+
+		int message = values[slot];
+		head = h + 1;
+
+		return message;
+	}
+
+	/*
+	 * take waits for the next message and returns it, or NONE if the
+	 * thread is interrupted. The interrupt is left set, so every take
+	 * after it returns NONE at once; a receiver should take NONE as a
+	 * sign to stop rather than take again.
+	 */
+	public int take(){
+		return take(Long.MAX_VALUE);
+	}
+
+	/*
+	 * take waits at most millis milliseconds for the next message and
+	 * returns it, or NONE if none came or the thread is interrupted.
+	 */
+	public int take(long millis){
+
+		long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(Math.min(millis, Long.MAX_VALUE / 2000000));
+
+		for(;;){
+
+			int message = poll();
+			if (message != NONE)
+				return message;
+
+			//say we are about to park, then look once more so a message
+			//sent in between is not missed
+			waiter = Thread.currentThread();
+			message = poll();
+			if (message != NONE){
+				waiter = null;
+				return message;
+			}
+
+			long left = deadline - System.nanoTime();
+			if (left <= 0 || Thread.currentThread().isInterrupted()){
+				waiter = null;
+				return NONE;
+			}
+
+			LockSupport.parkNanos(this, left);
+			waiter = null;
+		}
+	}
+
+	/*
+	 * size returns how many messages are waiting.
+	 */
+	public int size(){
+		return (int) Math.max(0, tail.get() - head);
+	}
+}
@@ -0,0 +1,143 @@
+/*
+ * File: MoveOrder.java
+ * Author: ConnectFourJava contributors
+ * Date: 10/17/26
+ *
+ * Purpose: This class decides the order in which Player tries the
+ * columns at each node. Alpha-beta cuts off the most when the best
+ * move is tried first, so the columns are sorted by:
+ *   1. the best move stored in the transposition table
+ *   2. the two killer moves, which caused a cutoff at the same ply
+ *   3. the history score, which grows each time a move at that
+ *      cell causes a cutoff anywhere in the tree
+ *   4. distance from the center, since center columns take part in
+ *      the most lines of four
+ *
+ * Associated Files: Player.java, Position.java
+ */
+
+public class MoveOrder {
+
+	private static final int TABLE_MOVE = Integer.MAX_VALUE;
+	private static final int KILLER_1 = Integer.MAX_VALUE - 1;
+	private static final int KILLER_2 = Integer.MAX_VALUE - 2;
+	private static final int HISTORY_LIMIT = 1 << 24;         //kept well under the killer scores
+
+	private final int rows;
+	private final int cols;
+	private final int[] centerRank;                           //smaller closer to the center, no two alike
+	private final int[][] killers;                            //[ply][2]
+	private final int[][] history;                            //[side][col * rows + height]
+	private final int[][] moves;                              //[ply][cols], reused at each node
+	private final int[] scores;
+
+	public MoveOrder(int rows, int cols){
+
+		this.rows = rows;
+		this.cols = cols;
+
+		centerRank = new int[cols];
+		for(int col = 0; col < cols; col++){
+			//for an even width the column just left of center goes first
+			centerRank[col] = Math.abs(2 * col - (cols - 1)) + (2 * col < cols - 1 ? 0 : 1);
+		}
+
+		int plies = rows * cols + 1;
+		killers = new int[plies][2];
+		history = new int[2][rows * cols];
+		moves = new int[plies][cols];
+		scores = new int[cols];
+
+		newSearch();
+	}
+
+	public int rows(){ return rows; }
+
+	public int cols(){ return cols; }
+
+	/*
+	 * newSearch is called before each move. Killers only make sense
+	 * for the tree they came from, so they are cleared, while history
+	 * scores are halved so old ones fade but still help.
+	 */
+	public void newSearch(){
+
+		for(int[] killer : killers){
+			killer[0] = -1;
+			killer[1] = -1;
+		}
+
+		for(int[] side : history){
+			for(int i = 0; i < side.length; i++)
+				side[i] >>= 1;
+		}
+	}
+
+	/*
+	 * moves returns the buffer that order fills for this ply.
+	 */
+	public int[] moves(int ply){
+		return moves[ply];
+	}
+
+	/*
+	 * order puts the playable columns of position into moves(ply),
+	 * best first, and returns how many there are. ttMove is the
+	 * table's best move or -1.
+	 */
+	public int order(Position position, int ply, int ttMove, int player){
+
+		int[] list = moves[ply];
+		int[] side = history[player == 10 ? 0 : 1];
+		int count = 0;
+
+		for(int col = 0; col < cols; col++){
+
+			if (!position.canPlay(col))
+				continue;
+
+			int score;
+			if (col == ttMove)
+				score = TABLE_MOVE;
+			else if (col == killers[ply][0])
+				score = KILLER_1;
+			else if (col == killers[ply][1])
+				score = KILLER_2;
+			else
+				score = side[col * rows + position.height(col)] * cols + (cols - centerRank[col]);
+
+			//insertion sort, there are never more than cols moves
+			int i = count++;
+			while (i > 0 && scores[i - 1] < score){
+				scores[i] = scores[i - 1];
+				list[i] = list[i - 1];
+				i--;
+			}
+			scores[i] = score;
+			list[i] = col;
+		}
+
+		return count;
+	}
+
+	/*
+	 * cutoff records that playing col caused a beta cutoff at this
+	 * ply with depth plies left. h is the height the piece landed on.
+	 */
+	public void cutoff(int ply, int col, int h, int player, int depth){
+
+		if (killers[ply][0] != col){
+			killers[ply][1] = killers[ply][0];
+			killers[ply][0] = col;
+		}
+
+		int[] side = history[player == 10 ? 0 : 1];
+		int cell = col * rows + h;
+		side[cell] += depth * depth;
+
+		if (side[cell] > HISTORY_LIMIT){
+			for(int i = 0; i < side.length; i++)
+				side[i] >>= 1;
+		}
+	}
+}
@@ -0,0 +1,234 @@
+/*
+ * File: OpeningBook.java
+ * Author: ConnectFourJava contributors
+ * Date: 10/17/26
+ *
+ * Purpose: This class is an opening book for Player. Every game starts
+ * from the empty board, so the first few moves can be searched deeply
+ * once, offline, and then looked up instead of searched during play.
+ *
+ * Running main generates a book: it finds every position with blue
+ * (the computer) to move and fewer than a given number of pieces,
+ * searches each one to a fixed depth, and writes the hash, score and
+ * best column of each to a file sorted by hash. open memory-maps such
+ * a file and lookup binary searches it in place, so nothing is copied
+ * onto the heap.
+ *
+ * File layout (big-endian):
+ *   int magic, int rows, int cols, int plies, int count
+ *   count records of: long hash, int score, byte column
+ *
+ * Hashes come from Position, so a book only works with the Position
+ * class that wrote it.
+ *
+ * Associated Files: Player.java, Position.java
+ */
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+public class OpeningBook {
+
+	private static final int MAGIC = 0x43344248;            //"C4BH"
+	private static final int HEADER = 20;                   //bytes before the first record
+	private static final int RECORD = 13;                   //bytes per record
+
+	private final MappedByteBuffer buffer;
+	private final int rows;
+	private final int cols;
+	private final int plies;
+	private final int count;
+
+	private OpeningBook(MappedByteBuffer buffer){
+
+		if (buffer.getInt(0) != MAGIC)
+			throw new IllegalArgumentException("not an opening book");
+
+		this.buffer = buffer;
+		this.rows = buffer.getInt(4);
+		this.cols = buffer.getInt(8);
+		this.plies = buffer.getInt(12);
+		this.count = buffer.getInt(16);
+	}
+
+	/*
+	 * open maps a book file into memory. The mapping stays valid after
+	 * the file is closed.
+	 */
+	public static OpeningBook open(File file) throws IOException {
+
+		RandomAccessFile raf = new RandomAccessFile(file, "r");
+		try {
+			FileChannel channel = raf.getChannel();
+			return new OpeningBook(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+		} finally {
+			raf.close();
+		}
+	}
+
+	public int plies(){ return plies; }
+
+	public int size(){ return count; }
+
+	/*
+	 * lookup returns the record index for a position, or -1 if the
+	 * book does not have it. Only positions with fewer than plies
+	 * pieces, blue to move, on a board of the book's size with lines of
+	 * four are in it.
+	 */
+	public int lookup(Position position){
+
+		if (position.rows() != rows || position.cols() != cols || position.length() != Windows.LENGTH
+				|| position.moves() >= plies)
+			return -1;
+
+		long key = position.hash();
+		int low = 0;
+		int high = count - 1;
+
+		while (low <= high){
+			int mid = (low + high) >>> 1;
+			long midKey = buffer.getLong(HEADER + mid * RECORD);
+
+			if (midKey < key)
+				low = mid + 1;
+			else if (midKey > key)
+				high = mid - 1;
+			else
+				return mid;
+		}
+
+		return -1;
+	}
+
+	/*
+	 * move returns the book column for a position, or -1 if the
+	 * position is not in the book.
+	 */
+	public int move(Position position){
+
+		int index = lookup(position);
+
+		return index < 0 ? -1 : buffer.get(HEADER + index * RECORD + 12);
+	}
+
+	/*
+	 * score returns the searched score of record index.
+	 */
+	public int score(int index){
+		return buffer.getInt(HEADER + index * RECORD + 8);
+	}
+
+	/*
+	 * generate searches every position with blue to move and fewer
+	 * than plies pieces to depth plies deep and writes the book to
+	 * file. Positions are searched in parallel, one Player per thread.
+	 */
+	public static void generate(File file, int rows, int cols, int plies, final int depth) throws IOException {
+
+		List<Position> positions = new ArrayList<Position>();
+		collect(new Position(rows, cols), plies, new HashSet<Long>(), positions);
+
+		final Position[] todo = positions.toArray(new Position[positions.size()]);
+		final long[] keys = new long[todo.length];
+		final int[] scores = new int[todo.length];
+		final int[] columns = new int[todo.length];
+
+		final ThreadLocal<Player> players = new ThreadLocal<Player>(){
+			protected Player initialValue(){
+				return new Player(Long.MAX_VALUE, depth);
+			}
+		};
+
+		IntStream.range(0, todo.length).parallel().forEach(i -> {
+			Player player = players.get();
+			keys[i] = todo[i].hash();
+			columns[i] = player.move(todo[i]);
+			scores[i] = player.lastValue();
+		});
+
+		//sort the records by hash
+		Integer[] order = new Integer[todo.length];
+		for(int i = 0; i < order.length; i++)
+			order[i] = i;
+		Arrays.sort(order, (a, b) -> Long.compare(keys[a], keys[b]));
+
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+		try {
+			out.writeInt(MAGIC);
+			out.writeInt(rows);
+			out.writeInt(cols);
+			out.writeInt(plies);
+			out.writeInt(todo.length);
+
+			for(int i : order){
+				out.writeLong(keys[i]);
+				out.writeInt(scores[i]);
+				out.writeByte(columns[i]);
+			}
+		} finally {
+			out.close();
+		}
+	}
+
+	/*
+	 * collect adds every position reachable from position with fewer
+	 * than plies pieces, blue to move and nobody having won, once each.
+	 */
+	private static void collect(Position position, int plies, Set<Long> seen, List<Position> positions){
+
+		if (position.moves() >= plies || !seen.add(position.hash()))
+			return;
+
+		//red moves first, so blue is to move after an odd number of pieces
+		boolean blueToMove = position.moves() % 2 == 1;
+		if (blueToMove)
+			positions.add(position.copy());
+
+		for(int col = 0; col < position.cols(); col++){
+
+			if (!position.canPlay(col))
+				continue;
+
+			position.play(col, blueToMove ? 10 : 1);
+			if (!position.wins(col))
+				collect(position, plies, seen, positions);
+			position.undo(col);
+		}
+	}
+
+	/*
+	 * Generates a book.
+	 * Usage: java OpeningBook file [plies] [depth] [rows] [cols]
+	 */
+	public static void main(String[] args) throws IOException {
+
+		if (args.length < 1){
+			System.out.println("usage: java OpeningBook file [plies] [depth] [rows] [cols]");
+			return;
+		}
+
+		int plies = args.length > 1 ? Integer.parseInt(args[1]) : 8;
+		int depth = args.length > 2 ? Integer.parseInt(args[2]) : 14;
+		int rows = args.length > 3 ? Integer.parseInt(args[3]) : 6;
+		int cols = args.length > 4 ? Integer.parseInt(args[4]) : 7;
+
+		long start = System.currentTimeMillis();
+		generate(new File(args[0]), rows, cols, plies, depth);
+
+		OpeningBook book = open(new File(args[0]));
+		System.out.println(book.size() + " positions in " + (System.currentTimeMillis() - start) + " ms");
+	}
+}
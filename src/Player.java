@@ -15,571 +15,1112 @@
  * 
  * Platform: This was developed on Mac OS X 10.8.3 in Eclipse IDE
  * 
- * Associated Files: Connect4.java
+ * The length of a winning line is whatever the Position says, 4 unless
+ * given, and boards of any size can be searched. Boards given as int[][]
+ * use the length set with setLineLength.
+ *
+ * Associated Files: Connect4.java, Position.java, TranspositionTable.java,
+ * MoveOrder.java, Windows.java, OpeningBook.java, SearchStats.java,
+ * EngineStats.java
  */
 
+import java.util.BitSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicInteger;
+
 public class Player {
 
+	//any score beyond this is a win found by the search
+	private static final int WIN_SCORE = Integer.MAX_VALUE - 1000;
+
+	private static final long DEFAULT_TIME_LIMIT = 500;      //milliseconds per move
+
+	private static final int TABLE_BITS = 20;                //2^20 table slots
+
+	//mixed into the table key when red is to move. Position's hash only
+	//covers the pieces, and a table shared by searches from different
+	//roots can meet the same pieces with either player to move
+	private static final long RED_TO_MOVE = 0x9E3779B97F4A7C15L;
+
+	// search algorithms, see setAlgorithm
+	public static final int ALPHA_BETA = 0;                  //every node searched with the full window
+	public static final int PVS = 1;                         //principal variation search
+	public static final int MTDF = 2;                        //MTD(f), only null-window searches
+
+	// ways to use more than one thread
+	public static final int ROOT_SPLIT = 0;                  //split the root columns across threads
+	public static final int LAZY_SMP = 1;                    //every thread searches the whole tree
+
+	//positions already searched, kept from one move to the next and
+	//shared with any helper threads
+	private final TranspositionTable table;
+
+	private MoveOrder order;                                 //killers and history for this board size
+
+	private final long timeLimit;                            //milliseconds allowed per move
+	private final int maxDepth;                              //deepest iteration allowed
+
+	//for parallel search: the pool the helpers run on, and a helper
+	//player for each pool thread with its own killers and history but
+	//this player's table. Both are null when searching on one thread
+	private final int mode;
+	private final int threads;
+	private final ForkJoinPool pool;
+	private final ThreadLocal<Player> helpers;
+
+	private OpeningBook book;                                //looked up before searching, if set
+	private int algorithm = ALPHA_BETA;
+	private int lineLength = Windows.LENGTH;                 //K for boards given as int[][]
+	private boolean statsOn;                                 //count the work of each move
+	private SearchStats stats;                               //counts for the current search, null if off
+	private EngineStats metrics;                             //told about every move, if set
+
+	private final Player parent;                             //for a helper, the player it works for
+	private volatile boolean helpersStop;                    //tells LAZY_SMP helpers to finish
+	private final AtomicInteger stops = new AtomicInteger(); //calls to stop so far
+	private volatile int stopsSeen;                          //stops when the current search was asked for
+
+	//pondering: a helper searching the human's replies on a thread of
+	//its own while they think, and what it found for each reply column
+	private Player ponderer;
+	private Thread ponderThread;
+	private volatile boolean ponderStop;                     //tells the ponderer to finish
+	private long[] ponderKeys;                               //hash after each reply, 0 if not searched
+	private int[] ponderMoves;
+	private int[] ponderValues;
+	private int[] ponderDepths;
+	private int lastDepth;                                   //deepest iteration the last search finished
+
+	private int searchDepth;                                 //depth of the current iteration
+	private long deadline;                                   //System time to stop searching
+	private boolean stopped;                                 //set when the deadline passes
+	private int nodes;                                       //nodes since the last clock check
+	private int rootValue;                                   //value of the last rootMove
+	private int moveValue;                                   //value of the last move returned
+
+	public Player(){
+		this(DEFAULT_TIME_LIMIT);
+	}
+
+	public Player(long timeLimit){
+		this(timeLimit, Integer.MAX_VALUE);
+	}
+
+	public Player(long timeLimit, int maxDepth){
+		this(timeLimit, maxDepth, 1);
+	}
+
+	public Player(long timeLimit, int maxDepth, int threads){
+		this(timeLimit, maxDepth, threads, ROOT_SPLIT);
+	}
+
 	/*
-	 * move returns a column in which to make the move
-	 * for the computer based on the enumerate value that
-	 * is returned.
+	 * Creates a player that searches for at most timeLimit
+	 * milliseconds per move, never deeper than maxDepth plies, using
+	 * up to threads threads on a ForkJoinPool. With ROOT_SPLIT the
+	 * columns at the root are searched in parallel. With LAZY_SMP the
+	 * helpers all run the same iterative deepening search, starting at
+	 * different depths, and only help by filling the shared table.
+	 * With more than one thread, call close when done with the player.
 	 */
+	public Player(long timeLimit, int maxDepth, int threads, int mode){
+		this(timeLimit, maxDepth, threads, mode, new TranspositionTable(TABLE_BITS));
+	}
 
-	private static int rows = Connect4.rows;
-	private static int cols = Connect4.cols;
+	/*
+	 * Creates a player like Player(timeLimit, maxDepth) that keeps
+	 * what it searches in table. Players on other threads may share
+	 * the table, and then reset clears it for all of them.
+	 */
+	public Player(long timeLimit, int maxDepth, TranspositionTable table){
+		this(timeLimit, maxDepth, 1, ROOT_SPLIT, table);
+	}
 
-	public int move(int[][] board, int player){
+	private Player(long timeLimit, int maxDepth, int threads, int mode, TranspositionTable table){
+		this.timeLimit = timeLimit;
+		this.maxDepth = maxDepth;
+		this.table = table;
+		this.mode = mode;
+		this.threads = threads;
+		this.parent = null;
+
+		if (threads > 1){
+			final Player owner = this;
+			pool = new ForkJoinPool(threads);
+			helpers = new ThreadLocal<Player>(){
+				protected Player initialValue(){
+					return new Player(owner);
+				}
+			};
+		}
+		else{
+			pool = null;
+			helpers = null;
+		}
+	}
 
-		int colMove = -1;                        //represents the column move
-		int value = Integer.MAX_VALUE * -1;
+	/*
+	 * Creates a helper that searches for parent on one pool thread.
+	 */
+	private Player(Player parent){
+		this.timeLimit = parent.timeLimit;
+		this.maxDepth = parent.maxDepth;
+		this.table = parent.table;
+		this.mode = parent.mode;
+		this.threads = 1;
+		this.parent = parent;
+		this.pool = null;
+		this.helpers = null;
+	}
 
-		for(int column = 0; column < cols; column++){
+	/*
+	 * close stops pondering and shuts down the pool of a player made
+	 * with more than one thread. Each pool thread holds a helper that
+	 * refers back to this player and its table, so until then neither
+	 * can be collected. The player cannot search after closing.
+	 */
+	public void close(){
 
-			if (board[0][column] == 0){           //if there can be a piece inserted
+		stopPondering();
+		if (pool != null)
+			pool.shutdown();
+	}
 
-				//find the playable row
-				int row = findPlayableRow(board, column);
+	/*
+	 * setOpeningBook makes move answer from book whenever the
+	 * position is in it, or stops using a book if book is null.
+	 */
+	public void setOpeningBook(OpeningBook book){
+		this.book = book;
+	}
 
-				board[row][column] = 10;
-				int e = enumerate(board, 1, Integer.MAX_VALUE * -1, Integer.MAX_VALUE);
-				board[row][column] = 0;
+	/*
+	 * setAlgorithm picks how each iteration is searched:
+	 * ALPHA_BETA searches every node with the full (alpha, beta) window.
+	 * PVS searches the first move of each node with the full window and
+	 * the rest with a null window that only proves they are no better,
+	 * searching again if one turns out to be better after all.
+	 * MTDF finds the root value with a series of null-window searches
+	 * only, starting from the last iteration's value and relying on the
+	 * transposition table to make the repeated searches cheap.
+	 */
+	public void setAlgorithm(int algorithm){
+		this.algorithm = algorithm;
+	}
 
-				if (e >= value){
-					colMove = column;
-					value = e;
-				}
+	/*
+	 * setLineLength sets how many in a row win on the boards given to
+	 * move, ponder, endGame and lastMoveWin as int[][]. It is 4 unless
+	 * set.
+	 */
+	public void setLineLength(int length){
+		this.lineLength = length;
+	}
 
-			}
-		}
+	/*
+	 * reset forgets every position searched so far, so the next move
+	 * is searched as if by a new player.
+	 */
+	public void reset(){
 
-		return colMove;
+		stopPondering();
+		table.clear();
+		order = null;
+		ponderKeys = null;
+		lastDepth = 0;
+	}
 
+	/*
+	 * setStats turns counting the work of each move on or off. While
+	 * it is on, stats returns the counts for the last move.
+	 */
+	public void setStats(boolean on){
+		this.statsOn = on;
+		if (!on)
+			stats = null;
 	}
 
 	/*
-	 * enumerate goes over all the possible plays on the board and returns 
-	 * Code from Slide 18: 
-	 * http://www.cs.bu.edu/fac/snyder/cs112/Lectures/CS112.Lecture.22.pdf
+	 * setMetrics makes every move report its time, depth and nodes to
+	 * metrics, or stops reporting if metrics is null. Several players
+	 * can report to the same metrics.
 	 */
-	public int enumerate(int[][] board, int move, int alpha, int beta){
+	public void setMetrics(EngineStats metrics){
+		this.metrics = metrics;
+	}
 
-		int pValue = Integer.MAX_VALUE * -1;            //player's value
-		int cValue = Integer.MAX_VALUE;            //comp's value
+	/*
+	 * stats returns what the last move searched, or null if stats are
+	 * off. A move from the book or from pondering searched nothing.
+	 */
+	public SearchStats stats(){
+		return stats;
+	}
 
-		//see who's turn it is
-		int player;
-		if (move % 2 == 0){
-			player = 10;
-		}
+	/*
+	 * lastValue returns the score of the last move returned, from
+	 * blue's side.
+	 */
+	public int lastValue(){
+		return moveValue;
+	}
 
-		else
-			player = 1;
+	/*
+	 * move returns a column in which to make the move
+	 * for the computer based on the enumerate value that
+	 * is returned.
+	 */
+	public int move(int[][] board, int player){
+		return move(Position.fromBoard(board, lineLength));
+	}
+
+	/*
+	 * move is move(board, player) for a search asked for when stops
+	 * returned since, so a stop after that stops it even if the search
+	 * had not started yet.
+	 */
+	public int move(int[][] board, int player, int since){
+		return move(Position.fromBoard(board, lineLength), since);
+	}
+
+	/*
+	 * move searches the position directly, with blue (10) to play.
+	 * It searches 1 ply deep, then 2, then 3 and so on until the time
+	 * limit runs out, and returns the column from the deepest search
+	 * that finished. A search cut off by the clock is thrown away.
+	 */
+	public int move(Position position){
+		return move(position, stops.get());
+	}
 
-		//evaluate the board value at this given instance
-		int bValue = eval(board);
+	/*
+	 * move is move(position) for a search asked for when stops
+	 * returned since.
+	 */
+	public int move(Position position, int since){
 
-		//if at the depth we want, or either player wins, or no more moves
-		if (isFull(board) || bValue == Integer.MAX_VALUE || bValue == Integer.MAX_VALUE * -1 || move == 7){
+		stopPondering();
+		stopsSeen = since;
 
-			if (bValue == Integer.MAX_VALUE)
-				return bValue - move;          //return the board value as you cannot go deeper
-			else if (bValue == Integer.MAX_VALUE * -1)
-				return bValue + move;
-			else
-				return bValue;
+		if (!statsOn && metrics == null)
+			return search(position);
 
+		stats = new SearchStats(position.rows() * position.cols());
+		long start = System.nanoTime();
+		int colMove = search(position);
+		stats.setNanos(System.nanoTime() - start);
+
+		if (metrics != null)
+			metrics.moveDone(stats.nanos(), stats.depth(), stats.nodes());
+		if (!statsOn)
+			stats = null;
+
+		return colMove;
+	}
+
+	/*
+	 * search finds the move for move: from the book, from pondering,
+	 * or by searching.
+	 */
+	private int search(Position position){
+
+		if (book != null){
+			int index = book.lookup(position);
+			if (index >= 0){
+				moveValue = book.score(index);
+				return book.move(position);
+			}
 		}
 
-		else if (player == 10){         //max's turn
+		//a limit of Long.MAX_VALUE means no limit
+		long stopTime = System.currentTimeMillis() + Math.min(timeLimit, Long.MAX_VALUE / 2);
+
+		//if the reply was pondered, start from what was found then, or
+		//answer at once if that went as deep as searching now would
+		int firstDepth = 1;
+		int lastBest = -1;
+		int reply = ponderedReply(position);
+		if (reply >= 0){
+			int empty = position.rows() * position.cols() - position.moves();
+			moveValue = ponderValues[reply];
+			if ((lastDepth > 0 && ponderDepths[reply] >= lastDepth)
+					|| ponderDepths[reply] >= Math.min(maxDepth, empty)
+					|| Math.abs(moveValue) > WIN_SCORE)
+				return ponderMoves[reply];
+
+			firstDepth = ponderDepths[reply] + 1;
+			lastBest = ponderMoves[reply];
+		}
 
-			for(int column = 0; column < cols; column++){         //each column in the board
+		if (pool == null || mode != LAZY_SMP)
+			return iterate(position, stopTime, firstDepth, lastBest);
 
-				//if top is empty, column not full, means playable somewhere
-				if(board[0][column] == 0){
+		//start a helper on every other thread, each on its own copy
+		helpersStop = false;
+		LazyTask[] tasks = new LazyTask[threads - 1];
+		for(int i = 0; i < tasks.length; i++){
+			tasks[i] = new LazyTask(position.copy(), stopTime, i + 1);
+			pool.execute(tasks[i]);
+		}
 
-					//find where it's playable
-					int row = findPlayableRow(board, column);
+		int colMove = iterate(position, stopTime, firstDepth, lastBest);
 
-					alpha = Math.max(alpha, pValue);    //update alpha with max
+		//the helpers' work is in the table, only this thread's move counts
+		helpersStop = true;
+		for(LazyTask task : tasks){
+			task.join();
+			if (stats != null)
+				stats.add(task.stats);
+		}
+		helpersStop = false;
 
-					if (beta < alpha){
-						break;
-					}
+		return colMove;
+	}
 
-					board[row][column] = 10;             //WHOEVER PLAYS SECOND
+	/*
+	 * iterate runs the iterative deepening loop from firstDepth until
+	 * stopTime and returns the best column found. lastBest is a column
+	 * already known to be good, or -1; if not even firstDepth finishes
+	 * it is returned, and moveValue must already hold its value.
+	 */
+	private int iterate(Position position, long stopTime, int firstDepth, int lastBest){
 
-					pValue = Math.max(pValue, enumerate(board, move + 1, alpha, beta));    //allows the bubbling up of leaf
+		deadline = stopTime;
+		stopped = false;
+		nodes = 0;
 
-					board[row][column] = 0;             //undo the move
+		prepare(position);
+		order.newSearch();
 
+		int empty = position.rows() * position.cols() - position.moves();
+		int colMove = lastBest;
 
+		for(searchDepth = firstDepth; searchDepth <= Math.min(maxDepth, empty); searchDepth++){
 
-				}
-			}
+			int column = iteration(position, colMove, moveValue);
+
+			if (stopped)
+				break;
 
-			return pValue;
+			colMove = column;
+			moveValue = rootValue;
+			lastDepth = searchDepth;
+			if (stats != null)
+				stats.iteration(searchDepth);
 
+			//once a forced win or loss is seen, deeper searches will not change it
+			if (Math.abs(rootValue) > WIN_SCORE)
+				break;
 		}
 
-		else{                     //min's turn
+		return colMove;
 
-			for(int column = 0; column < cols; column++){         //each column in the board
+	}
 
-				//if top is empty, column not full, means playable somewhere
-				if(board[0][column] == 0){
+	/*
+	 * iteration searches position to searchDepth with the chosen
+	 * algorithm, leaving the value in rootValue. lastBest and lastValue
+	 * come from the iteration before, lastBest being -1 for the first.
+	 */
+	private int iteration(Position position, int lastBest, int lastValue){
 
-					//find where it's playable
-					int row = findPlayableRow(board, column);
+		if (algorithm == MTDF)
+			return mtdf(position, lastBest, lastBest == -1 ? eval(position) : lastValue);
 
-					beta = Math.min(beta, cValue);    //update beta with min
+		return rootMove(position, lastBest, Integer.MAX_VALUE * -1, Integer.MAX_VALUE);
+	}
 
-					if (beta < alpha){
-						break;
-					}
+	/*
+	 * ponder starts searching, on a thread of its own, every reply the
+	 * human (red) could make on board, so that when one of them is
+	 * played move can answer from what was found instead of starting
+	 * over. It keeps going until move or stopPondering is called.
+	 */
+	public void ponder(int[][] board){
+		ponder(Position.fromBoard(board, lineLength));
+	}
+
+	/*
+	 * ponder starts pondering position, which must have red to move.
+	 * Nothing is pondered if the game is already over.
+	 */
+	public void ponder(Position position){
 
-					board[row][column] = 1;             //WHOEVER PLAYS FIRST
+		stopPondering();
+		stopsSeen = stops.get();
 
-					cValue = Math.min(cValue, enumerate(board, move + 1, alpha, beta));    //allows the bubbling up of leaf
+		int cols = position.cols();
+		ponderKeys = new long[cols];
+		ponderMoves = new int[cols];
+		ponderValues = new int[cols];
+		ponderDepths = new int[cols];
 
-					board[row][column] = 0;             //undo the move
+		if (position.isFull() || position.isWin(1) || position.isWin(10))
+			return;
 
+		if (ponderer == null)
+			ponderer = new Player(this);
+		ponderer.algorithm = algorithm;
 
-				}
+		final Position copy = position.copy();
+		ponderThread = new Thread(new Runnable(){
+			public void run(){
+				ponderer.ponderReplies(copy);
 			}
+		}, "Connect4 ponder");
+		ponderThread.setDaemon(true);
+		ponderThread.start();
+	}
 
-			return cValue;
-		} 
+	/*
+	 * stop makes a move or ponder running on another thread finish as
+	 * soon as it can. A stopped move returns the best column it had,
+	 * or -1 if it had not finished searching one ply. It counts the
+	 * stop rather than setting a flag that the next search clears, so
+	 * a move queued before the stop, as with move(board, player, since),
+	 * is stopped too.
+	 */
+	public void stop(){
+		stops.incrementAndGet();
 	}
 
 	/*
-	 * findPlayableRow uses the board and column being searched to find
-	 * the position of the row that is empty. This traverses the row
-	 * from the bottom up.
+	 * stops returns how many times stop has been called, to pass to
+	 * move when queuing a search for another thread.
 	 */
-	private int findPlayableRow(int[][] board, int column){
+	public int stops(){
+		return stops.get();
+	}
 
-		//reverse traverse up the row in that column
-		for(int row = rows - 1; row > -1; row--){
+	/*
+	 * stopPondering stops the ponder thread, if there is one, and waits
+	 * for it to finish. What it found so far is kept for move.
+	 */
+	public void stopPondering(){
 
-			//if the board at that row/column is empty
-			if(board[row][column] == 0){
-				return row;
-			}
+		if (ponderThread == null)
+			return;
+
+		ponderStop = true;
+		try {
+			ponderThread.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		ponderThread = null;
+		ponderStop = false;
+	}
+
+	/*
+	 * ponderedReply returns the reply column that led to position if
+	 * it was pondered, or -1.
+	 */
+	private int ponderedReply(Position position){
+
+		if (ponderKeys == null)
+			return -1;
+
+		for(int col = 0; col < ponderKeys.length; col++){
+			if (ponderKeys[col] == position.hash() && ponderDepths[col] > 0)
+				return col;
 		}
 
-		//should never get here
 		return -1;
 	}
 
 	/*
-	 * isFull returns true if all the columns on the top row are filled
-	 * and returns true if they are. If there is an empty space, the board
-	 * is not full, returns false.
+	 * ponderReplies runs on the ponder helper. It deepens the search of
+	 * every red reply together, one ply at a time, so each reply has
+	 * been searched about as deep as the others whenever the human
+	 * moves. The reply the table expects is searched first at each
+	 * depth, and a reply whose result is a forced win or loss is not
+	 * searched again. Results go into the owner's ponder arrays.
 	 */
-	private boolean isFull(int[][] board){
+	private void ponderReplies(Position position){
+
+		deadline = Long.MAX_VALUE;
+		stopped = false;
+		nodes = 0;
+
+		prepare(position);
+		order.newSearch();
+
+		long entry = table.probe(position.hash() ^ RED_TO_MOVE);
+		int[] replies = new int[position.cols()];
+		int count = order.order(position, 0, entry != 0 ? TranspositionTable.move(entry) : -1, 1);
+		System.arraycopy(order.moves(0), 0, replies, 0, count);
+
+		int empty = position.rows() * position.cols() - position.moves();
+
+		for(int depth = 1; depth <= Math.min(maxDepth, empty - 1); depth++){
+
+			boolean searched = false;
 
-		for(int i = 0; i < rows; i++){
+			for(int i = 0; i < count; i++){
 
-			//if any top column on the board is empty, it's not full
-			if(board[0][i] == 0){
+				int col = replies[i];
+				if (depth > 1 && (parent.ponderDepths[col] < depth - 1
+						|| Math.abs(parent.ponderValues[col]) > WIN_SCORE))
+					continue;
 
-				return false;
+				position.play(col, 1);
+				if (!position.wins(col)){
+					searchDepth = depth;
+					int column = iteration(position, depth == 1 ? -1 : parent.ponderMoves[col], parent.ponderValues[col]);
 
+					if (!stopped){
+						parent.ponderKeys[col] = position.hash();
+						parent.ponderMoves[col] = column;
+						parent.ponderValues[col] = rootValue;
+						parent.ponderDepths[col] = depth;
+						searched = true;
+					}
+				}
+				position.undo(col);
+
+				if (stopped)
+					return;
 			}
+
+			if (!searched)
+				return;
 		}
+	}
+
+	/*
+	 * LazyTask runs a LAZY_SMP helper. Every other helper starts one
+	 * ply deeper, so the threads are not all on the same iteration.
+	 */
+	private class LazyTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
 
-		return true;
+		private final Position position;
+		private final long stopTime;
+		private final int id;
+		private SearchStats stats;
 
+		LazyTask(Position position, long stopTime, int id){
+			this.position = position;
+			this.stopTime = stopTime;
+			this.id = id;
+		}
+
+		protected void compute(){
+			Player helper = helpers.get();
+			helper.algorithm = algorithm;
+			helper.stats = Player.this.stats == null ? null : new SearchStats(position.rows() * position.cols());
+			helper.iterate(position, stopTime, 1 + id % 2, -1);
+			stats = helper.stats;
+		}
 	}
 
 	/*
-	 * endGame takes the board (2D int array) and looks at strings of 4 
-	 * at a time horizontally, vertically, diagonally-down, and diagonally-up
-	 * If there are four of the same piece (1 or 10) in a row, then it returns
-	 * the locations of the spots. If not, it returns array of -1s
+	 * prepare makes sure the move ordering tables fit the board.
 	 */
-	public int[][] endGame(int[][] board) {
-		
-		int[][] winLocation = new int[4][2];
-
-		int loopCount = 0;
-		int redCount = 0;
-		int blueCount = 0;
-
-		// go through board horizontally
-		for (int row = 0; row < rows; row++) { //board.length = number of rows
-			for (int colStart = 0; colStart < cols - 3; colStart++) { //Start of the column comparison
-				for (int colPos = colStart; colPos < colStart + 4; colPos++) { //End of the column comparison
-
-					if (board[row][colPos] == 1)
-						redCount++;
-					else if (board[row][colPos] == 10)
-						blueCount++;
-					
-					winLocation[loopCount][0] = row;
-					winLocation[loopCount][1] = colPos;
-					loopCount++;
-				}
+	private void prepare(Position position){
 
-				if (redCount == 4 || blueCount == 4)
-					return winLocation;
+		if (order == null || order.rows() != position.rows() || order.cols() != position.cols())
+			order = new MoveOrder(position.rows(), position.cols());
+	}
 
-				loopCount = 0;
-				redCount = 0;
-				blueCount = 0;
-			}
-		}
+	/*
+	 * mtdf finds the value of the root at searchDepth with null-window
+	 * rootMove searches, each one proving the value is above or below a
+	 * test value, and moving the test value until the bounds meet. The
+	 * column returned is the one that proved the final lower bound.
+	 */
+	private int mtdf(Position position, int lastBest, int guess){
 
-		// go through board vertically
-		for (int col = 0; col < cols; col++) { //board[0].length = number of columns
-			for (int rowStart = 0; rowStart < rows - 3; rowStart++) {
-				for (int rowPos = rowStart; rowPos < rowStart + 4; rowPos++) {
-					if (board[rowPos][col] == 1)
-						redCount++;
-					else if (board[rowPos][col] == 10)
-						blueCount++;
-
-					winLocation[loopCount][0] = rowPos;
-					winLocation[loopCount][1] = col;
-					loopCount++;
-				}
+		int value = guess;
+		int lower = Integer.MAX_VALUE * -1;
+		int upper = Integer.MAX_VALUE;
+		int colMove = lastBest;
 
-				if (redCount == 4 || blueCount == 4)
-					return winLocation;
+		while (lower < upper){
 
+			int test = value == lower ? value + 1 : value;
+			int column = rootMove(position, colMove, test - 1, test);
 
-				loopCount = 0;
-				redCount = 0;
-				blueCount = 0;
+			if (stopped)
+				return colMove;
+
+			value = rootValue;
+			if (value < test){
+				upper = value;
+			}
+			else{
+				lower = value;
+				colMove = column;
 			}
+
+			if (colMove == -1)
+				colMove = column;
 		}
 
-		// go through board diagonally-down (nw-se)
-		// do diagonals from column 0 (rows 0-2 in a typical board)
-		for (int row = 0; row < rows - 3; row++) { // row to start in
-			for (int colStart = 0; colStart < (rows - 3) - row; colStart++) { // column to start
-				for (int colPos = colStart; colPos < colStart + 4; colPos++) {
-					if (board[colPos + row][colPos] == 1)
-						redCount++;
-					else if (board[colPos + row][colPos] == 10)
-						blueCount++;
-
-					winLocation[loopCount][0] = colPos + row;
-					winLocation[loopCount][1] = colPos;
-					loopCount++;
-					
-				}
+		rootValue = value;
 
-				if (redCount == 4 || blueCount == 4)
-					return winLocation;
+		return colMove;
+	}
 
+	/*
+	 * rootMove tries every column at the current searchDepth, starting
+	 * with the best one from the last iteration, and returns the best
+	 * one, leaving its value in rootValue. Each column only has to
+	 * beat the best so far, so it is searched with that as alpha, and
+	 * the search stops early once a column reaches beta. With PVS every
+	 * column after the first is searched with a null window first.
+	 *
+	 * In parallel, the first column is still searched alone, since it
+	 * is usually the best and gives the others a tight alpha. Then the
+	 * rest are split across the pool, each on its own copy of the board.
+	 */
+	private int rootMove(Position position, int lastBest, int alpha, int beta){
 
-				loopCount = 0;
-				redCount = 0;
-				blueCount = 0;
-			}
-		}
+		int colMove = -1;                        //represents the column move
+		int value = Integer.MAX_VALUE * -1;
 
-		// do diagonals from row 0 (columns 1-3)
-		for (int colPos = 1; colPos < cols - 3; colPos++) { // column to start in
-			for (int colEnd = 0; colEnd < (cols - 3) - colPos; colEnd++) { // place to start
-				for (int row = colEnd; row < colEnd + 4; row++) {
-					if (board[row][row + colPos] == 1)
-						redCount++;
-					else if (board[row][row + colPos] == 10)
-						blueCount++;
-
-					winLocation[loopCount][0] = row;
-					winLocation[loopCount][1] = row + colPos;
-					loopCount++;
-				}
+		int[] moves = order.moves(0);
+		int count = order.order(position, 0, lastBest, 10);
 
-				if (redCount == 4 || blueCount == 4)
-					return winLocation;
+		if (pool != null && mode == ROOT_SPLIT && searchDepth > 1 && count > 1){
 
+			colMove = moves[0];
+			value = searchColumn(position, colMove, alpha, beta);
+
+			if (!stopped && value < beta){
+				RootTask[] tasks = new RootTask[count - 1];
+				for(int i = 1; i < count; i++){
+					tasks[i - 1] = new RootTask(position.copy(), moves[i], Math.max(alpha, value), beta, searchDepth, deadline);
+					pool.execute(tasks[i - 1]);
+				}
 
-				loopCount = 0;
-				redCount = 0;
-				blueCount = 0;
+				//collect in move order so ties go the same way every time
+				for(RootTask task : tasks){
+					int e = task.join();
+					if (stats != null)
+						stats.add(task.stats);
+
+					if (task.stopped)
+						stopped = true;
+					else if (e > value){
+						colMove = task.column;
+						value = e;
+					}
+				}
 			}
 		}
 
-		// go through board diagonally-up (sw-ne)
-		// do diagonals from column 0 (rows 3-6)
-		for (int row = 3; row < rows; row++) { // row to start in
-			for (int colStart = 0; colStart < row - 2; colStart++) { // place to start
-				for (int colPosition = colStart; colPosition < colStart + 4; colPosition++) {
-					if (board[row - colPosition][colPosition] == 1)
-						redCount++;
-					else if (board[row - colPosition][colPosition] == 10)
-						blueCount++;
-
-					winLocation[loopCount][0] = row - colPosition;
-					winLocation[loopCount][1] = colPosition;
-					loopCount++;
+		else{
+
+			for(int i = 0; i < count; i++){
+
+				int column = moves[i];
+				int a = Math.max(alpha, value);
+				int e;
+
+				if (algorithm == PVS && i > 0){
+					e = searchColumn(position, column, a, a + 1);
+					if (e > a && e < beta && !stopped)
+						e = searchColumn(position, column, a, beta);
 				}
+				else
+					e = searchColumn(position, column, a, beta);
 
-				if (redCount == 4 || blueCount == 4)
-					return winLocation;
+				if (stopped)
+					break;
 
+				if (e > value || colMove == -1){
+					colMove = column;
+					value = e;
+				}
 
-				loopCount = 0;
-				redCount = 0;
-				blueCount = 0;
+				if (value >= beta)
+					break;
 			}
 		}
 
-		// do diagonals from row 6 (columns 1-3)
-		for (int colStart = 1; colStart < cols - 3; colStart++) { // column to start in
-			for (int j = rows - 1; j > (rows - 5) + colStart; j--) { // place to start
-				for (int k = j; k > j - 4; k--) {
-					if (board[k][(rows - 1) + colStart - k] == 1)
-						redCount++;
-					else if (board[k][(rows - 1) + colStart - k] == 10)
-						blueCount++;
-
-					winLocation[loopCount][0] = k;
-					winLocation[loopCount][1] = (rows - 1) + colStart - k;
-					loopCount++;
-				}
+		rootValue = value;
 
-				if (redCount == 4 || blueCount == 4)
-					return winLocation;
+		return colMove;
 
-				loopCount = 0;
-				redCount = 0;
-				blueCount = 0;
-			}
-		}
-		
-		// if winLocation hasn't been returned yet, then there was no win
-		// fill winLocation entirely with -1s
-		for (int i = 0; i < winLocation.length; i++) {
-			for (int j = 0; j < winLocation[0].length; j++) {
-				winLocation[i][j] = -1;
-			}
-		}
-		
-		return winLocation;
 	}
 
 	/*
-	 * eval evaluates the board and returns the 'score' for that board.
-	 * 1 = red, 10 = blue (our player), 0 = empty
+	 * searchColumn plays blue in column and returns the value of the
+	 * result, which is exact if it is between alpha and beta.
 	 */
-	private int eval(int[][] board) {
-		int myCurrentLines = currentLines(board, 10);
+	private int searchColumn(Position position, int column, int alpha, int beta){
 
-		if (myCurrentLines == Integer.MAX_VALUE)
-			return myCurrentLines;
+		position.play(column, 10);
+		int e;
+		if (position.wins(column))
+			e = Integer.MAX_VALUE - 1;             //winning right away
+		else
+			e = enumerate(position, 1, alpha, beta);
+		position.undo(column);
 
-		int opponentCurrentLines = currentLines(board, 1);
+		return e;
+	}
 
-		if (opponentCurrentLines == Integer.MAX_VALUE)
-			return opponentCurrentLines * -1;
+	/*
+	 * RootTask searches one root column on a pool thread, using that
+	 * thread's helper player.
+	 */
+	private class RootTask extends RecursiveTask<Integer> {
+
+		private static final long serialVersionUID = 1L;
+
+		private final Position position;
+		private final int column;
+		private final int alpha;
+		private final int beta;
+		private final int depth;
+		private final long stopTime;
+		private boolean stopped;
+		private SearchStats stats;
+
+		RootTask(Position position, int column, int alpha, int beta, int depth, long stopTime){
+			this.position = position;
+			this.column = column;
+			this.alpha = alpha;
+			this.beta = beta;
+			this.depth = depth;
+			this.stopTime = stopTime;
+		}
+
+		protected Integer compute(){
 
-		int evalScore = myCurrentLines - opponentCurrentLines;
+			Player helper = helpers.get();
+			helper.prepare(position);
+			helper.searchDepth = depth;
+			helper.deadline = stopTime;
+			helper.stopped = false;
+			helper.nodes = 0;
+			helper.algorithm = algorithm;
+			helper.stats = Player.this.stats == null ? null : new SearchStats(position.rows() * position.cols());
 
-		return evalScore;
+			int e = helper.searchColumn(position, column, alpha, beta);
+			stopped = helper.stopped;
+			stats = helper.stats;
 
+			return e;
+		}
 	}
 
 	/*
-	 * currentLines takes the board (2D int array) and the player (10 or 1). 
-	 * It looks at strings of 4 at a time horizontally, vertically, 
-	 * diagonally-down, and diagonally-up. It counts the number of current 
-	 * lines of 1, 2, 3, and 4 based on empty spaces
+	 * enumerate goes over all the possible plays on the board and returns 
+	 * Code from Slide 18: 
+	 * http://www.cs.bu.edu/fac/snyder/cs112/Lectures/CS112.Lecture.22.pdf
+	 * Before searching a position it checks the transposition table, and
+	 * afterwards it stores the result with the bound it represents.
 	 */
-	private int currentLines(int[][] board, int player) {
+	public int enumerate(Position position, int move, int alpha, int beta){
+
+		//check the clock every few thousand nodes, but always finish depth 1.
+		//A LAZY_SMP helper also stops when the main search is done, the
+		//ponderer when the human has moved, and everyone on stop
+		if (++nodes == 4096){
+			nodes = 0;
+			if (searchDepth > 1 && System.currentTimeMillis() > deadline)
+				stopped = true;
+			if (parent != null && (parent.helpersStop || parent.ponderStop))
+				stopped = true;
+			Player owner = parent != null ? parent : this;
+			if (owner.stops.get() != owner.stopsSeen)
+				stopped = true;
+		}
 
-		int pieceCount = 0;
-		int emptyCount = 0;
-		int lineOf1Count = 0;
-		int lineOf2Count = 0;
-		int lineOf3Count = 0;
-		int lineOf4Count = 0;
+		if (stopped)
+			return 0;
 
-		// go through board horizontally
-		for (int row = 0; row < rows; row++) { //board.length = number of rows
-			for (int colStart = 0; colStart < cols - 3; colStart++) { //Start of the column comparison
-				for (int colPos = colStart; colPos < colStart + 4; colPos++) { //End of the column comparison
-					if (board[row][colPos] == 0)
-						emptyCount++;
-					else if (board[row][colPos] == player)
-						pieceCount++;
-				}
+		if (stats != null)
+			stats.nodes++;
 
-				if (pieceCount > 0 && (pieceCount + emptyCount == 4)) {
-					if (pieceCount == 4)
-						lineOf4Count++;
-					else if (pieceCount == 3)
-						lineOf3Count++;
-					else if (pieceCount == 2)
-						lineOf2Count++;
-					else                // pieceCount == 1 (only option left)
-						lineOf1Count++;
-				}
+		int depth = searchDepth - move;            //plies left to search
+		long key = move % 2 == 0 ? position.hash() : position.hash() ^ RED_TO_MOVE;
 
-				if (lineOf4Count > 0)
-					return Integer.MAX_VALUE; // 2^31 - 1
+		//the window as given, for deciding what kind of bound the result is
+		int alphaStart = alpha;
+		int betaStart = beta;
 
-				pieceCount = 0;
-				emptyCount = 0;
-			}
+		//a position already searched at least this deep may settle it,
+		//and otherwise its best move is still a good one to try first
+		long entry = table.probe(key);
+		int tableMove = entry != 0 ? TranspositionTable.move(entry) : -1;
+		if (stats != null){
+			stats.probes++;
+			if (entry != 0)
+				stats.hits++;
 		}
+		if (entry != 0 && TranspositionTable.depth(entry) >= depth){
 
-		// go through board vertically
-		for (int col = 0; col < cols; col++) { //board[0].length = number of columns
-			for (int rowStart = 0; rowStart < rows - 3; rowStart++) {
-				for (int rowPos = rowStart; rowPos < rowStart + 4; rowPos++) {
-					if (board[rowPos][col] == 0)
-						emptyCount++;
-					else if (board[rowPos][col] == player)
-						pieceCount++;
-				}
+			int tValue = fromTable(TranspositionTable.score(entry), move);
 
-				if (pieceCount > 0 && (pieceCount + emptyCount == 4)) {
-					if (pieceCount == 4)
-						lineOf4Count++;
-					else if (pieceCount == 3)
-						lineOf3Count++;
-					else if (pieceCount == 2)
-						lineOf2Count++;
-					else // pieceCount == 1 (only option left)
-						lineOf1Count++;
-				}
+			if (TranspositionTable.flag(entry) == TranspositionTable.EXACT)
+				return tValue;
+			else if (TranspositionTable.flag(entry) == TranspositionTable.LOWER)
+				alpha = Math.max(alpha, tValue);
+			else
+				beta = Math.min(beta, tValue);
 
-				if (lineOf4Count > 0)
-					return Integer.MAX_VALUE; // 2^31 - 1
+			if (beta <= alpha)
+				return tValue;
+		}
 
-				pieceCount = 0;
-				emptyCount = 0;
-			}
+		//see who's turn it is
+		int player;
+		if (move % 2 == 0){
+			player = 10;
 		}
 
-		// go through board diagonally-down (nw-se)
-		// do diagonals from column 0 (rows 0-2 in a typical board)
-		for (int row = 0; row < rows - 3; row++) { // row to start in
-			for (int colStart = 0; colStart < (rows - 3) - row; colStart++) { // column to start
-				for (int colPos = colStart; colPos < colStart + 4; colPos++) {
-					if (board[colPos + row][colPos] == 0)
-						emptyCount++;
-					else if (board[colPos + row][colPos] == player)
-						pieceCount++;
-				}
+		else
+			player = 1;
 
-				if (pieceCount > 0 && (pieceCount + emptyCount == 4)) {
-					if (pieceCount == 4)
-						lineOf4Count++;
-					else if (pieceCount == 3)
-						lineOf3Count++;
-					else if (pieceCount == 2)
-						lineOf2Count++;
-					else // pieceCount == 1 (only option left)
-						lineOf1Count++;
-				}
+		//if at the depth we want, or no more moves. A win is caught by
+		//the caller as soon as the winning piece is played, so nobody
+		//has a whole line here
+		if (position.isFull() || depth == 0){
+			if (stats != null)
+				stats.leaves++;
+			return eval(position);          //return the board value as you cannot go deeper
+		}
 
-				if (lineOf4Count > 0)
-					return Integer.MAX_VALUE; // 2^31 - 1
+		int bestColumn = -1;
+		int value;
 
-				pieceCount = 0;
-				emptyCount = 0;
-			}
-		}
+		int[] moves = order.moves(move);
+		int count = order.order(position, move, tableMove, player);
+
+		if (player == 10){         //max's turn
+
+			value = Integer.MAX_VALUE * -1;
 
-		// do diagonals from row 0 (columns 1-3)
-		for (int colPos = 1; colPos < cols - 3; colPos++) { // column to start in
-			for (int colEnd = 0; colEnd < (cols - 3) - colPos; colEnd++) { // place to start
-				for (int row = colEnd; row < colEnd + 4; row++) {
-					if (board[row][row + colPos] == 0)
-						emptyCount++;
-					else if (board[row][row + colPos] == player)
-						pieceCount++;
+			for(int i = 0; i < count; i++){         //each playable column, best first
+
+				int column = moves[i];
+
+				position.play(column, 10);             //WHOEVER PLAYS SECOND
+				int e;
+				if (position.wins(column))
+					e = Integer.MAX_VALUE - (move + 1);    //a whole line ends the game here
+				else if (algorithm == PVS && i > 0){
+					//prove it is no better than alpha, search properly if it is
+					e = enumerate(position, move + 1, alpha, alpha + 1);
+					if (e > alpha && e < beta)
+						e = enumerate(position, move + 1, alpha, beta);
 				}
+				else
+					e = enumerate(position, move + 1, alpha, beta);    //allows the bubbling up of leaf
+				position.undo(column);             //undo the move
 
-				if (pieceCount > 0 && (pieceCount + emptyCount == 4)) {
-					if (pieceCount == 4)
-						lineOf4Count++;
-					else if (pieceCount == 3)
-						lineOf3Count++;
-					else if (pieceCount == 2)
-						lineOf2Count++;
-					else // pieceCount == 1 (only option left)
-						lineOf1Count++;
+				if (e > value || bestColumn == -1){
+					value = e;
+					bestColumn = column;
 				}
 
-				if (lineOf4Count > 0)
-					return Integer.MAX_VALUE; // 2^31 - 1
+				alpha = Math.max(alpha, value);    //update alpha with max
 
-				pieceCount = 0;
-				emptyCount = 0;
+				if (beta <= alpha){
+					order.cutoff(move, column, position.height(column), player, depth);
+					if (stats != null){
+						stats.cutoffs++;
+						if (i == 0)
+							stats.firstMoveCutoffs++;
+					}
+					break;
+				}
 			}
 		}
 
-		// go through board diagonally-up (sw-ne)
-		// do diagonals from column 0 (rows 3-6)
-		for (int row = 3; row < rows; row++) { // row to start in
-			for (int colStart = 0; colStart < row - 2; colStart++) { // place to start
-				for (int colPosition = colStart; colPosition < colStart + 4; colPosition++) {
-					if (board[row - colPosition][colPosition] == 0)
-						emptyCount++;
-					else if (board[row - colPosition][colPosition] == player)
-						pieceCount++;
+		else{                     //min's turn
+
+			value = Integer.MAX_VALUE;
+
+			for(int i = 0; i < count; i++){         //each playable column, best first
+
+				int column = moves[i];
+
+				position.play(column, 1);             //WHOEVER PLAYS FIRST
+				int e;
+				if (position.wins(column))
+					e = Integer.MAX_VALUE * -1 + (move + 1);    //a whole line ends the game here
+				else if (algorithm == PVS && i > 0){
+					//prove it is no better than beta, search properly if it is
+					e = enumerate(position, move + 1, beta - 1, beta);
+					if (e < beta && e > alpha)
+						e = enumerate(position, move + 1, alpha, beta);
 				}
+				else
+					e = enumerate(position, move + 1, alpha, beta);    //allows the bubbling up of leaf
+				position.undo(column);             //undo the move
 
-				if (pieceCount > 0 && (pieceCount + emptyCount == 4)) {
-					if (pieceCount == 4)
-						lineOf4Count++;
-					else if (pieceCount == 3)
-						lineOf3Count++;
-					else if (pieceCount == 2)
-						lineOf2Count++;
-					else // pieceCount == 1 (only option left)
-						lineOf1Count++;
+				if (e < value || bestColumn == -1){
+					value = e;
+					bestColumn = column;
 				}
 
-				if (lineOf4Count > 0)
-					return Integer.MAX_VALUE; // 2^31 - 1
+				beta = Math.min(beta, value);    //update beta with min
 
-				pieceCount = 0;
-				emptyCount = 0;
+				if (beta <= alpha){
+					order.cutoff(move, column, position.height(column), player, depth);
+					if (stats != null){
+						stats.cutoffs++;
+						if (i == 0)
+							stats.firstMoveCutoffs++;
+					}
+					break;
+				}
 			}
 		}
 
-		// do diagonals from row 6 (columns 1-3)
-		for (int colStart = 1; colStart < cols - 3; colStart++) { // column to start in
-			for (int j = rows - 1; j > (rows - 5) + colStart; j--) { // place to start
-				for (int k = j; k > j - 4; k--) {
-					if (board[k][(rows - 1) + colStart - k] == 0) // [7 + i - k]
-						emptyCount++;
-					else if (board[k][(rows - 1) + colStart - k] == player) // [7 + i - k]
-						pieceCount++;
-				}
+		//an unfinished search must not go into the table
+		if (stopped)
+			return value;
 
-				if (pieceCount > 0 && (pieceCount + emptyCount == 4)) {
-					if (pieceCount == 4)
-						lineOf4Count++;
-					else if (pieceCount == 3)
-						lineOf3Count++;
-					else if (pieceCount == 2)
-						lineOf2Count++;
-					else // pieceCount == 1 (only option left)
-						lineOf1Count++;
-				}
+		//a value outside the window we were given is only a bound
+		int flag;
+		if (value <= alphaStart)
+			flag = TranspositionTable.UPPER;
+		else if (value >= betaStart)
+			flag = TranspositionTable.LOWER;
+		else
+			flag = TranspositionTable.EXACT;
+
+		table.store(key, depth, toTable(value, move), flag, bestColumn);
+
+		return value;
+	}
+
+	/*
+	 * Win scores count plies from the root (MAX_VALUE - move), but the
+	 * same position can come up at a different ply, so the table keeps
+	 * them counted from the position itself instead.
+	 */
+	private static int toTable(int value, int move){
+
+		if (value > WIN_SCORE)
+			return value + move;
+		else if (value < WIN_SCORE * -1)
+			return value - move;
+		else
+			return value;
+	}
+
+	private static int fromTable(int value, int move){
+
+		if (value > WIN_SCORE)
+			return value - move;
+		else if (value < WIN_SCORE * -1)
+			return value + move;
+		else
+			return value;
+	}
+
+	/*
+	 * endGame takes the board (2D int array) and looks at every window
+	 * of K in the Windows table for that board size: horizontally,
+	 * vertically, diagonally-down, and diagonally-up.
+	 * If there are K of the same piece (1 or 10) in a row, then it returns
+	 * the locations of the spots. If not, it returns array of -1s
+	 */
+	public int[][] endGame(int[][] board) {
+		
+		Windows windows = Windows.of(board.length, board[0].length, lineLength);
+		int length = windows.length();
+
+		int[][] winLocation = new int[length][2];
+
+		for (int w = 0; w < windows.count(); w++) {
 
-				if (lineOf4Count > 0)
-					return Integer.MAX_VALUE; // 2^31 - 1
+			int first = windows.windowCell(w, 0);
+			int piece = board[windows.rowOf(first)][windows.colOf(first)];
 
-				pieceCount = 0;
-				emptyCount = 0;
+			if (piece == 0)
+				continue;
+
+			int k = 1;
+			while (k < length) {
+				int cell = windows.windowCell(w, k);
+				if (board[windows.rowOf(cell)][windows.colOf(cell)] != piece)
+					break;
+				k++;
+			}
+
+			if (k == length) {
+				for (k = 0; k < length; k++) {
+					int cell = windows.windowCell(w, k);
+					winLocation[k][0] = windows.rowOf(cell);
+					winLocation[k][1] = windows.colOf(cell);
+				}
+				return winLocation;
 			}
 		}
+		
+		// if winLocation hasn't been returned yet, then there was no win
+		// fill winLocation entirely with -1s
+		for (int i = 0; i < winLocation.length; i++) {
+			for (int j = 0; j < winLocation[0].length; j++) {
+				winLocation[i][j] = -1;
+			}
+		}
+		
+		return winLocation;
+	}
+
+	/*
+	 * lastMoveWin looks only at the lines through the piece just played
+	 * at board[row][col] and returns true if it made a line of K. The
+	 * cells of every such line go into winMask, which is cleared first,
+	 * with bit (row * cols + col) set for each cell. The caller keeps
+	 * winMask from move to move, so nothing is allocated.
+	 */
+	public boolean lastMoveWin(int[][] board, int row, int col, BitSet winMask) {
+
+		int rows = board.length;
+		int cols = board[0].length;
+		Windows windows = Windows.of(rows, cols, lineLength);
+		int[] through = windows.through();
+		int cell = windows.cell(rows - 1 - row, col);
+		int piece = board[row][col];
+		boolean won = false;
+		winMask.clear();
+
+		for (int i = windows.firstThrough(cell); i < windows.endThrough(cell); i++) {
+
+			int w = through[i];
+			int k = 0;
+
+			while (k < windows.length()) {
+				int c = windows.windowCell(w, k);
+				if (board[windows.rowOf(c)][windows.colOf(c)] != piece)
+					break;
+				k++;
+			}
 
+			if (k == windows.length()) {
+				won = true;
+				for (k = 0; k < windows.length(); k++) {
+					int c = windows.windowCell(w, k);
+					winMask.set(windows.rowOf(c) * cols + windows.colOf(c));
+				}
+			}
+		}
 
-		// lineOf4Count isn't included because if lineOf4Count > 0, Integer.MAX_VALUE should have returned
-		int currentLinesScore = 1000000*lineOf3Count + 1000*lineOf2Count + 1*lineOf1Count;
+		return won;
+	}
 
-		return currentLinesScore;
+	/*
+	 * eval evaluates the board and returns the 'score' for that board.
+	 * 1 = red, 10 = blue (our player), 0 = empty
+	 * It is only called when nobody has won, so it is the score of the
+	 * lines short of K (weighted 1000000 for K - 1, 1000 for K - 2 and
+	 * 1 for the rest) that Position keeps up to date as pieces are
+	 * played, clamped far below the win scores.
+	 */
+	private int eval(Position position) {
+		return position.score();
 	}
 }
\ No newline at end of file
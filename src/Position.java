@@ -0,0 +1,433 @@
+/*
+ * File: Position.java
+ * Author: ConnectFourJava contributors
+ * Date: 10/17/26
+ *
+ * Purpose: This class stores a board as two bitboards, one for
+ * each player, plus the height of every column, so that Player
+ * can make and unmake moves with a few bit operations instead of
+ * rescanning an int[][] board at every node.
+ *
+ * Each column uses rows + 1 bits starting from the bottom cell. The
+ * extra bit on top of each column is always empty so that shifting
+ * a bitboard never carries a piece over into the next column.
+ *
+ * A Zobrist hash of the pieces is kept up to date on every play and
+ * undo so the position can be looked up in a TranspositionTable. It
+ * starts from a salt made from rows, cols and K, so the same pieces on
+ * another board size or with another K hash differently.
+ *
+ * The position also keeps the evaluation score used by Player. For
+ * every window of K cells in the shared Windows table it remembers
+ * how many red and blue pieces are in it, and play and undo only
+ * update the windows through the cell that changed, adjusting a
+ * running score as they go. K, the length of a winning line, is 4
+ * unless given.
+ *
+ * A board too large for a long (more than 64 bits with the spare
+ * row) has no bitboards. The window counts and a piece per cell do
+ * everything the bitboards did, so Player can search it all the same.
+ *
+ * Associated Files: Player.java, TranspositionTable.java, Windows.java
+ */
+
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class Position {
+
+	public static final int EMPTY = 0;
+	public static final int RED = 1;                 //plays first
+	public static final int BLUE = 10;               //the computer
+
+	//the score never goes beyond this, far from Player's win scores
+	public static final int MAX_SCORE = 1 << 30;
+
+	private final int rows;
+	private final int cols;
+	private final int height1;                       //bits per column (rows + 1)
+	private final int length;                        //pieces in a winning line, K
+	private final boolean bitboards;                 //the board fits in a long
+
+	private long red;                                //0 without bitboards
+	private long blue;
+	private final byte[] pieces;                     //piece on each Windows cell
+	private final int[] height;                      //pieces in each column
+	private int moves;
+	private long hash;
+	private final long[] keys;                       //Zobrist keys, red then blue for each bit index
+
+	private final Windows table;                     //windows for this board size
+	private final int[] through;                     //the table's windows through each cell
+	private final int[] windows;                     //(K + 1) * red count + blue count, per window
+	private final int[] values;                      //value of each window state
+	private final int redStep;                       //K + 1
+	private long score;                              //sum of window values, blue minus red
+
+	// value of a window by its (K + 1) * red + blue state, from blue's
+	// side, for each K
+	private static final Map<Integer, int[]> WINDOW_VALUES = new ConcurrentHashMap<Integer, int[]>();
+
+	// two random keys, red then blue, per bit index, from a fixed seed
+	// so hashes are the same from run to run. Larger boards get a longer
+	// array from the same seed, so the keys of the first bits never change
+	private static volatile long[] KEYS = makeKeys(64);
+
+	private static long[] makeKeys(int bits){
+
+		Random random = new Random(0x436F6E6E656374L);
+		long[] keys = new long[2 * bits];
+		for(int i = 0; i < keys.length; i++)
+			keys[i] = random.nextLong();
+
+		return keys;
+	}
+
+	/*
+	 * salt returns the hash of an empty board of this size and K, so a
+	 * table shared by several sizes never mixes up their positions.
+	 */
+	private static long salt(int rows, int cols, int length){
+
+		long h = ((long) rows << 40 | (long) cols << 20 | length) * 0xBF58476D1CE4E5B9L;
+		h ^= h >>> 31;
+		h *= 0x94D049BB133111EBL;
+		return h ^ h >>> 29;
+	}
+
+	private static long[] keys(int bits){
+
+		long[] keys = KEYS;
+		if (keys.length < 2 * bits){
+			synchronized (Position.class){
+				if (KEYS.length < 2 * bits)
+					KEYS = makeKeys(bits);
+				keys = KEYS;
+			}
+		}
+
+		return keys;
+	}
+
+	/*
+	 * lineValue returns what a window with count pieces of one player
+	 * and none of the other is worth when a line is length long: a
+	 * million one piece short of a line, a thousand two short, else 1.
+	 * Full lines are wins and are scored by Player instead.
+	 */
+	private static int lineValue(int count, int length){
+
+		if (count == 0 || count >= length)
+			return 0;
+		else if (count == length - 1)
+			return 1000000;
+		else if (count == length - 2)
+			return 1000;
+		else
+			return 1;
+	}
+
+	private static int[] windowValues(int length){
+
+		int[] values = WINDOW_VALUES.get(length);
+		if (values != null)
+			return values;
+
+		int states = length + 1;
+		values = new int[states * states];
+		for(int r = 0; r < states; r++){
+			for(int b = 0; b < states; b++){
+				if (r == 0)
+					values[states * r + b] = lineValue(b, length);
+				else if (b == 0)
+					values[states * r + b] = lineValue(r, length) * -1;
+			}
+		}
+
+		WINDOW_VALUES.putIfAbsent(length, values);
+		return values;
+	}
+
+	/*
+	 * Creates an empty position where a line of four wins.
+	 */
+	public Position(int rows, int cols){
+		this(rows, cols, Windows.LENGTH);
+	}
+
+	/*
+	 * Creates an empty position where a line of length wins. The board
+	 * may be any size that a line of length fits on.
+	 */
+	public Position(int rows, int cols, int length){
+
+		this.rows = rows;
+		this.cols = cols;
+		this.height1 = rows + 1;
+		this.length = length;
+		this.bitboards = (rows + 1) * cols <= 64;
+		this.pieces = new byte[rows * cols];
+		this.height = new int[cols];
+		this.keys = keys(height1 * cols);
+		this.hash = salt(rows, cols, length);
+		this.table = Windows.of(rows, cols, length);
+		this.through = table.through();
+		this.windows = new int[table.count()];
+		this.values = windowValues(length);
+		this.redStep = length + 1;
+	}
+
+	/*
+	 * fromBoard builds a position from the GUI board, where row 0 is
+	 * the top of the board and 1 = red, 10 = blue, 0 = empty.
+	 */
+	public static Position fromBoard(int[][] board){
+		return fromBoard(board, Windows.LENGTH);
+	}
+
+	/*
+	 * fromBoard builds a position from the GUI board where a line of
+	 * length wins.
+	 */
+	public static Position fromBoard(int[][] board, int length){
+
+		Position position = new Position(board.length, board[0].length, length);
+
+		for(int row = 0; row < position.rows; row++){
+			for(int col = 0; col < position.cols; col++){
+
+				if (board[row][col] != EMPTY){
+					int h = position.rows - 1 - row;
+					position.place(position.index(h, col), position.table.cell(h, col), board[row][col]);
+					position.height[col]++;
+					position.moves++;
+				}
+			}
+		}
+
+		return position;
+	}
+
+	/*
+	 * copy returns an independent position with the same pieces.
+	 */
+	public Position copy(){
+
+		Position copy = new Position(rows, cols, length);
+		copy.red = red;
+		copy.blue = blue;
+		copy.moves = moves;
+		copy.hash = hash;
+		copy.score = score;
+		System.arraycopy(pieces, 0, copy.pieces, 0, pieces.length);
+		System.arraycopy(height, 0, copy.height, 0, cols);
+		System.arraycopy(windows, 0, copy.windows, 0, windows.length);
+
+		return copy;
+	}
+
+	public int rows(){ return rows; }
+
+	public int cols(){ return cols; }
+
+	/*
+	 * length returns how many pieces in a row win, K.
+	 */
+	public int length(){ return length; }
+
+	public int moves(){ return moves; }
+
+	public int height(int col){ return height[col]; }
+
+	public long hash(){ return hash; }
+
+	/*
+	 * score returns the value of all lines short of a win that are
+	 * not blocked, blue's minus red's, kept within MAX_SCORE. It does
+	 * not look for wins.
+	 */
+	public int score(){
+		return (int) Math.max(-MAX_SCORE, Math.min(MAX_SCORE, score));
+	}
+
+	/*
+	 * hasBitboards returns true if the board fits the bitboards that
+	 * bits and bit use, which boards of more than 64 bits do not.
+	 */
+	public boolean hasBitboards(){ return bitboards; }
+
+	/*
+	 * bits returns the bitboard of the given player (1 or 10).
+	 */
+	public long bits(int player){
+		return player == RED ? red : blue;
+	}
+
+	/*
+	 * bit returns the single bit for a cell, where height 0 is the
+	 * bottom of the column.
+	 */
+	public long bit(int h, int col){
+		return 1L << index(h, col);
+	}
+
+	private int index(int h, int col){
+		return col * height1 + h;
+	}
+
+	/*
+	 * cell returns the piece at the given GUI row (0 = top) and column.
+	 */
+	public int cell(int row, int col){
+		return pieces[table.cell(rows - 1 - row, col)];
+	}
+
+	/*
+	 * canPlay returns true if the column still has an empty cell.
+	 */
+	public boolean canPlay(int col){
+		return height[col] < rows;
+	}
+
+	/*
+	 * playableRow returns the GUI row (0 = top) that the next piece
+	 * dropped in this column will land on.
+	 */
+	public int playableRow(int col){
+		return rows - 1 - height[col];
+	}
+
+	/*
+	 * play drops a piece for player (1 or 10) into col. The column
+	 * must not be full.
+	 */
+	public void play(int col, int player){
+
+		place(index(height[col], col), table.cell(height[col], col), player);
+
+		height[col]++;
+		moves++;
+	}
+
+	/*
+	 * place puts a piece on the bitboards, the hash and every window
+	 * through the cell.
+	 */
+	private void place(int index, int cell, int player){
+
+		int step;
+		if (player == RED){
+			if (bitboards)
+				red |= 1L << index;
+			hash ^= keys[2 * index];
+			step = redStep;
+		}
+		else{
+			if (bitboards)
+				blue |= 1L << index;
+			hash ^= keys[2 * index + 1];
+			step = 1;
+		}
+		pieces[cell] = (byte) player;
+
+		for(int i = table.firstThrough(cell); i < table.endThrough(cell); i++){
+			int window = through[i];
+			score -= values[windows[window]];
+			windows[window] += step;
+			score += values[windows[window]];
+		}
+	}
+
+	/*
+	 * undo takes back the top piece of col, whoever played it.
+	 */
+	public void undo(int col){
+
+		height[col]--;
+		moves--;
+
+		int index = index(height[col], col);
+		int cell = table.cell(height[col], col);
+		long bit = bitboards ? 1L << index : 0;
+
+		int step;
+		if (pieces[cell] == RED){
+			red &= ~bit;
+			hash ^= keys[2 * index];
+			step = redStep;
+		}
+		else{
+			blue &= ~bit;
+			hash ^= keys[2 * index + 1];
+			step = 1;
+		}
+		pieces[cell] = EMPTY;
+
+		for(int i = table.firstThrough(cell); i < table.endThrough(cell); i++){
+			int window = through[i];
+			score -= values[windows[window]];
+			windows[window] -= step;
+			score += values[windows[window]];
+		}
+	}
+
+	public boolean isFull(){
+		return moves == rows * cols;
+	}
+
+	/*
+	 * wins returns true if the top piece of col is part of a line of
+	 * K. Only the windows through that cell are looked at, and a
+	 * window is full of one color when its count reaches K.
+	 */
+	public boolean wins(int col){
+
+		int cell = table.cell(height[col] - 1, col);
+
+		for(int i = table.firstThrough(cell); i < table.endThrough(cell); i++){
+			int state = windows[through[i]];
+			if (state == redStep * length || state == length)
+				return true;
+		}
+
+		return false;
+	}
+
+	/*
+	 * isWin returns true if player has K in a row anywhere.
+	 */
+	public boolean isWin(int player){
+
+		if (bitboards){
+			long b = bits(player);
+			return hasLine(b, 1) || hasLine(b, height1) || hasLine(b, height1 - 1) || hasLine(b, height1 + 1);
+		}
+
+		int full = player == RED ? redStep * length : length;
+		for(int state : windows){
+			if (state == full)
+				return true;
+		}
+
+		return false;
+	}
+
+	/*
+	 * hasLine checks a bitboard for K in a row. Shifting by 1 looks
+	 * vertically, by rows + 1 horizontally and by rows or rows + 2
+	 * along the two diagonals. The spare bit on top of each column
+	 * stops a line from wrapping into the next column.
+	 */
+	private boolean hasLine(long b, int shift){
+
+		long line = b;
+		for(int k = 1; k < length && line != 0; k++){
+			if (k * shift >= 64)
+				return false;
+			line &= b >>> (k * shift);
+		}
+
+		return line != 0;
+	}
+}
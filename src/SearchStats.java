@@ -0,0 +1,134 @@
+/*
+ * File: SearchStats.java
+ * Author: ConnectFourJava contributors
+ * Date: 10/17/26
+ *
+ * Purpose: This class counts the work Player did for one move: nodes
+ * searched, leaves evaluated, beta cutoffs and how many of them came
+ * from the first move tried, transposition table hits, and the nodes
+ * each iteration of the iterative deepening took, which gives the
+ * effective branching factor.
+ *
+ * Player only counts when stats are turned on with setStats, so a
+ * player that does not ask for them pays one null check per count.
+ * With several threads, the helpers' counts are added in when they
+ * finish.
+ *
+ * Associated Files: Player.java
+ */
+
+public class SearchStats {
+
+	//counted directly by Player as it searches
+	long nodes;
+	long leaves;
+	long cutoffs;
+	long firstMoveCutoffs;                                  //cutoffs by the first move tried
+	long probes;
+	long hits;
+
+	private final long[] depthNodes;                        //nodes used by each finished iteration
+	private long counted;                                   //nodes already put in depthNodes
+	private int depth;                                      //deepest finished iteration
+	private long nanos;
+
+	/*
+	 * Creates empty stats for searches up to maxDepth plies.
+	 */
+	public SearchStats(int maxDepth){
+		depthNodes = new long[maxDepth + 1];
+	}
+
+	/*
+	 * iteration records that the iteration at depth has finished.
+	 */
+	void iteration(int depth){
+
+		depthNodes[depth] += nodes - counted;
+		counted = nodes;
+		this.depth = Math.max(this.depth, depth);
+	}
+
+	void setNanos(long nanos){
+		this.nanos = nanos;
+	}
+
+	/*
+	 * add adds the counts of a helper's search into these.
+	 */
+	void add(SearchStats other){
+
+		nodes += other.nodes;
+		leaves += other.leaves;
+		cutoffs += other.cutoffs;
+		firstMoveCutoffs += other.firstMoveCutoffs;
+		probes += other.probes;
+		hits += other.hits;
+		counted += other.counted;
+
+		for(int d = 0; d < depthNodes.length && d < other.depthNodes.length; d++)
+			depthNodes[d] += other.depthNodes[d];
+	}
+
+	public long nodes(){ return nodes; }
+
+	public long leaves(){ return leaves; }
+
+	public long cutoffs(){ return cutoffs; }
+
+	public long tableProbes(){ return probes; }
+
+	public long tableHits(){ return hits; }
+
+	public int depth(){ return depth; }
+
+	public long nanos(){ return nanos; }
+
+	/*
+	 * firstMoveCutoffRate returns the share of cutoffs made by the
+	 * first move tried, which is how good the move ordering is.
+	 */
+	public double firstMoveCutoffRate(){
+		return cutoffs == 0 ? 0 : (double) firstMoveCutoffs / cutoffs;
+	}
+
+	public double tableHitRate(){
+		return probes == 0 ? 0 : (double) hits / probes;
+	}
+
+	public double nodesPerSecond(){
+		return nanos == 0 ? 0 : nodes * 1e9 / nanos;
+	}
+
+	/*
+	 * nodes returns the nodes the iteration at depth took, or 0 if it
+	 * did not finish.
+	 */
+	public long nodes(int depth){
+		return depth < depthNodes.length ? depthNodes[depth] : 0;
+	}
+
+	/*
+	 * branchingFactor returns how many times more nodes the iteration
+	 * at depth took than the one before it, or 0 if either is missing.
+	 */
+	public double branchingFactor(int depth){
+
+		long before = nodes(depth - 1);
+		return depth < 2 || before == 0 ? 0 : (double) nodes(depth) / before;
+	}
+
+	public String toString(){
+
+		StringBuilder s = new StringBuilder();
+		s.append(String.format("depth %d, %d nodes (%d leaves) in %.1f ms, %.0f nodes/s%n",
+				depth, nodes, leaves, nanos / 1e6, nodesPerSecond()));
+		s.append(String.format("cutoffs %d, %.1f%% by the first move, table hits %.1f%% of %d%n",
+				cutoffs, 100 * firstMoveCutoffRate(), 100 * tableHitRate(), probes));
+
+		for(int d = 1; d <= depth; d++)
+			s.append(String.format("  depth %2d: %10d nodes, branching %.2f%n", d, nodes(d), branchingFactor(d)));
+
+		return s.toString();
+	}
+}
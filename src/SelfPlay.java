@@ -0,0 +1,205 @@
+/*
+ * File: SelfPlay.java
+ * Author: ConnectFourJava contributors
+ * Date: 10/17/26
+ *
+ * Purpose: This class plays Player against itself without the GUI, as
+ * many games at once as there are threads, and reports how many games
+ * it played per second and how they ended. It is for checking that a
+ * change to the engine does not make it play worse, and for tuning:
+ * red and blue can search to different depths.
+ *
+ * Nothing here touches AWT or Swing, so it runs on a headless machine.
+ *
+ * Player always searches for blue (10), so red's player is given the
+ * board with the colors swapped, where its own pieces are blue.
+ *
+ * Every game starts with a few random moves so that the games are not
+ * all the same. The random moves of game i come from seed + i, so a
+ * run can be repeated.
+ *
+ * Associated Files: Player.java, Position.java, EngineStats.java
+ */
+
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class SelfPlay {
+
+	private final int rows;
+	private final int cols;
+	private final int length;
+	private final int redDepth;
+	private final int blueDepth;
+	private final int randomPlies;
+	private final long seed;
+
+	//each thread keeps its own pair of players from game to game
+	private final ThreadLocal<Player[]> players;
+
+	private final AtomicLong redWins = new AtomicLong();
+	private final AtomicLong blueWins = new AtomicLong();
+	private final AtomicLong draws = new AtomicLong();
+	private final AtomicLong plies = new AtomicLong();
+
+	private EngineStats metrics;                             //told about games and moves, if set
+
+	/*
+	 * Creates a runner for rows x cols games where red searches
+	 * redDepth plies, blue blueDepth plies, and the first randomPlies
+	 * moves of each game are random.
+	 */
+	public SelfPlay(int rows, int cols, final int redDepth, final int blueDepth, int randomPlies, long seed){
+		this(rows, cols, Windows.LENGTH, redDepth, blueDepth, randomPlies, seed);
+	}
+
+	/*
+	 * Creates a runner like the one above for games where a line of
+	 * length wins.
+	 */
+	public SelfPlay(int rows, int cols, int length, final int redDepth, final int blueDepth, int randomPlies, long seed){
+
+		this.rows = rows;
+		this.cols = cols;
+		this.length = length;
+		this.redDepth = redDepth;
+		this.blueDepth = blueDepth;
+		this.randomPlies = randomPlies;
+		this.seed = seed;
+
+		players = new ThreadLocal<Player[]>(){
+			protected Player[] initialValue(){
+				return new Player[] { new Player(Long.MAX_VALUE, redDepth), new Player(Long.MAX_VALUE, blueDepth) };
+			}
+		};
+	}
+
+	/*
+	 * setMetrics makes the games and every player's moves report to
+	 * metrics. It must be called before run.
+	 */
+	public void setMetrics(EngineStats metrics){
+		this.metrics = metrics;
+	}
+
+	public long redWins(){ return redWins.get(); }
+
+	public long blueWins(){ return blueWins.get(); }
+
+	public long draws(){ return draws.get(); }
+
+	public long plies(){ return plies.get(); }
+
+	/*
+	 * run plays games numbered first to first + games - 1 on threads
+	 * threads and returns once they have all finished.
+	 */
+	public void run(final int first, int games, int threads) throws InterruptedException {
+
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+
+		for(int i = 0; i < games; i++){
+			final int game = first + i;
+			executor.execute(new Runnable(){
+				public void run(){
+					play(game);
+				}
+			});
+		}
+
+		executor.shutdown();
+		executor.awaitTermination(Long.MAX_VALUE, TimeUnit.DAYS);
+	}
+
+	/*
+	 * play plays one game and counts its result. It returns the winner
+	 * (1 or 10), or 0 for a draw.
+	 */
+	public int play(int game){
+
+		Random random = new Random(seed + game);
+		Player[] pair = players.get();
+		pair[0].setMetrics(metrics);
+		pair[1].setMetrics(metrics);
+		if (metrics != null)
+			metrics.gameStarted();
+
+		Position position = new Position(rows, cols, length);
+		Position swapped = new Position(rows, cols, length);    //red's pieces are blue here
+		int winner = 0;
+
+		while (!position.isFull()){
+
+			boolean redToMove = position.moves() % 2 == 0;
+			int col;
+
+			if (position.moves() < randomPlies){
+				do {
+					col = random.nextInt(cols);
+				} while (!position.canPlay(col));
+			}
+			else if (redToMove)
+				col = pair[0].move(swapped);
+			else
+				col = pair[1].move(position);
+
+			position.play(col, redToMove ? 1 : 10);
+			swapped.play(col, redToMove ? 10 : 1);
+
+			if (position.wins(col)){
+				winner = redToMove ? 1 : 10;
+				break;
+			}
+		}
+
+		if (winner == 1)
+			redWins.incrementAndGet();
+		else if (winner == 10)
+			blueWins.incrementAndGet();
+		else
+			draws.incrementAndGet();
+		plies.addAndGet(position.moves());
+		if (metrics != null)
+			metrics.gameEnded();
+
+		return winner;
+	}
+
+	/*
+	 * Plays a batch of games and prints the results.
+	 * Usage: java SelfPlay [games] [redDepth] [blueDepth] [threads] [randomPlies] [rows] [cols] [k]
+	 */
+	public static void main(String[] args) throws InterruptedException {
+
+		int games = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+		int redDepth = args.length > 1 ? Integer.parseInt(args[1]) : 6;
+		int blueDepth = args.length > 2 ? Integer.parseInt(args[2]) : redDepth;
+		int threads = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+		int randomPlies = args.length > 4 ? Integer.parseInt(args[4]) : 4;
+		int rows = args.length > 5 ? Integer.parseInt(args[5]) : 6;
+		int cols = args.length > 6 ? Integer.parseInt(args[6]) : 7;
+		int k = args.length > 7 ? Integer.parseInt(args[7]) : Windows.LENGTH;
+
+		SelfPlay selfPlay = new SelfPlay(rows, cols, k, redDepth, blueDepth, randomPlies, 1);
+		EngineStats metrics = EngineStats.register("SelfPlay");
+		selfPlay.setMetrics(metrics);
+
+		long start = System.nanoTime();
+		selfPlay.run(0, games, threads);
+		double seconds = (System.nanoTime() - start) / 1e9;
+
+		System.out.println(games + " games of " + rows + "x" + cols + ", " + k + " in a row, red depth " + redDepth
+				+ ", blue depth " + blueDepth + ", " + randomPlies + " random plies, " + threads + " threads");
+		System.out.printf("%.1f s, %.1f games/s, %.1f plies per game%n",
+				seconds, games / seconds, (double) selfPlay.plies() / games);
+		System.out.printf("red %d (%.1f%%), blue %d (%.1f%%), draw %d (%.1f%%)%n",
+				selfPlay.redWins(), 100.0 * selfPlay.redWins() / games,
+				selfPlay.blueWins(), 100.0 * selfPlay.blueWins() / games,
+				selfPlay.draws(), 100.0 * selfPlay.draws() / games);
+		System.out.printf("move latency p50 %.2f ms, p99 %.2f ms, %.0f nodes/s%n",
+				metrics.getMoveLatencyP50(), metrics.getMoveLatencyP99(), metrics.getNodesPerSecond());
+	}
+}
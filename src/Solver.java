@@ -0,0 +1,479 @@
+/*
+ * File: Solver.java
+ * Author: ConnectFourJava contributors
+ * Date: 10/17/26
+ *
+ * Purpose: This class solves Connect Four positions exactly. Where
+ * Player searches a few plies and guesses with a heuristic, the solver
+ * searches to the end of the game and returns the game-theoretic score
+ * of a position, so it plays perfectly.
+ *
+ * A score counts the plies left after the game ends. If the piece that
+ * wins is the P-th piece of the game, the winner scores rows * cols + 1 - P
+ * and the loser the negative of that; a draw scores 0. Positive means
+ * the player to move can force a win, and the quicker the win the
+ * higher the score.
+ *
+ * The search is negamax with alpha-beta on two bitboards, the pieces of
+ * the player to move and of the opponent, using:
+ *   - MTD(f) at the root: null-window searches that move a test value
+ *     until the bounds they prove meet
+ *   - a transposition table keeping a lower and an upper bound for
+ *     each position in one long, next to a key that identifies the
+ *     position exactly. A position and its mirror image share an entry
+ *   - anticipation of losing moves: a win on the next move is taken at
+ *     once, an opponent's threat that can be played must be blocked,
+ *     two such threats lose, and a cell right under an opponent's
+ *     threat is never played
+ *   - move ordering by the number of threats a move makes, then by
+ *     distance from the center
+ *
+ * The bitboard layout is the same as Position: each column takes
+ * rows + 1 bits from the bottom, with an empty bit on top. Adding the
+ * bottom bit of every column to the occupied cells carries into the
+ * first empty cell of each column, which gives the cells a piece can
+ * be dropped on without keeping column heights.
+ *
+ * It only solves lines of four, on the board size it was made for.
+ * The empty 6x7 board takes a long offline run: main prints the
+ * nodes and time of each position it solves.
+ *
+ * Associated Files: Position.java, Player.java
+ */
+
+import java.util.Arrays;
+
+public class Solver {
+
+	private final int rows;
+	private final int cols;
+	private final int height1;                               //bits per column (rows + 1)
+	private final int cells;
+	private final long board;                                //every cell, without the spare bits
+	private final long bottom;                               //the bottom cell of every column
+	private final long[] columns;                            //every bit of each column, spare included
+	private final int[] shifts;                              //bit steps along the four directions
+	private final int[] centerRank;                          //smaller closer to the center, no two alike
+
+	//transposition table, in buckets of two entries: the first keeps
+	//the position nearest the root of those that landed there, the
+	//second the latest. A key is scrambled by multiplying with an odd
+	//number, which can be undone, and its top bits pick the bucket while
+	//the rest are stored as a tag, so an entry still names its position
+	//exactly. From the low bits an entry holds the tag, the lower and
+	//upper bounds + BIAS (7 bits each), the best column + 1 (4 bits, 0
+	//if none) and the ply (6 bits). An empty entry is 0
+	private static final int KEY_BITS = 49;
+	private static final long KEY_MASK = (1L << KEY_BITS) - 1;
+	private static final long SCRAMBLE = 0x1B873593A3C5DL;
+	private static final int BIAS = 64;
+	private final int tagBits;
+	private final long tagMask;
+	private final long[] table;
+
+	private final int[][] moveLists;                         //columns to try, one list per ply
+	private final int[][] moveScores;
+
+	private long nodes;
+
+	public Solver(){
+		this(6, 7, 24);
+	}
+
+	/*
+	 * Creates a solver for a rows x cols board with a transposition
+	 * table of 2^tableBits entries, 8 bytes each. tableBits must be
+	 * from 10 to 30.
+	 */
+	public Solver(int rows, int cols, int tableBits){
+
+		if ((rows + 1) * cols > KEY_BITS)
+			throw new IllegalArgumentException("board too large for the solver: " + rows + "x" + cols);
+		if (tableBits < 10 || tableBits > 30)
+			throw new IllegalArgumentException("tableBits must be from 10 to 30: " + tableBits);
+
+		this.rows = rows;
+		this.cols = cols;
+		this.height1 = rows + 1;
+		this.cells = rows * cols;
+
+		long all = 0;
+		long low = 0;
+		columns = new long[cols];
+		for(int col = 0; col < cols; col++){
+			all |= ((1L << rows) - 1) << (col * height1);
+			low |= 1L << (col * height1);
+			columns[col] = ((1L << height1) - 1) << (col * height1);
+		}
+		board = all;
+		bottom = low;
+
+		shifts = new int[] { 1, height1, height1 - 1, height1 + 1 };
+
+		centerRank = new int[cols];
+		for(int col = 0; col < cols; col++)
+			centerRank[col] = Math.abs(2 * col - (cols - 1));
+
+		tagBits = KEY_BITS - (tableBits - 1);
+		tagMask = (1L << tagBits) - 1;
+		table = new long[1 << tableBits];
+
+		moveLists = new int[cells + 1][cols];
+		moveScores = new int[cells + 1][cols];
+	}
+
+	/*
+	 * reset empties the transposition table.
+	 */
+	public void reset(){
+		Arrays.fill(table, 0);
+	}
+
+	private void check(Position position){
+
+		if (position.rows() != rows || position.cols() != cols || position.length() != 4)
+			throw new IllegalArgumentException("this solver plays lines of 4 on " + rows + "x" + cols + " boards");
+	}
+
+	/*
+	 * nodes returns how many positions the last solve visited.
+	 */
+	public long nodes(){ return nodes; }
+
+	/*
+	 * solve returns the exact score of position for the player to move.
+	 * Red moves when an even number of pieces have been played.
+	 */
+	public int solve(Position position){
+
+		check(position);
+		nodes = 0;
+
+		int toMove = position.moves() % 2 == 0 ? Position.RED : Position.BLUE;
+		int other = toMove == Position.RED ? Position.BLUE : Position.RED;
+
+		return mtdf(position.bits(toMove), position.bits(other), position.moves());
+	}
+
+	/*
+	 * move returns the best column for the player to move on board.
+	 * Like Player, it assumes it is blue's (10's) turn.
+	 */
+	public int move(int[][] board, int player){
+		return move(Position.fromBoard(board));
+	}
+
+	/*
+	 * move returns the column with the best exact score, preferring
+	 * center columns between equal scores. It returns -1 if the
+	 * board is full.
+	 */
+	public int move(Position position){
+
+		check(position);
+		nodes = 0;
+
+		int toMove = position.moves() % 2 == 0 ? Position.RED : Position.BLUE;
+		int other = toMove == Position.RED ? Position.BLUE : Position.RED;
+		long mine = position.bits(toMove);
+		long theirs = position.bits(other);
+		long next = playable(mine | theirs);
+		int ply = position.moves();
+
+		int best = -1;
+		int bestScore = Integer.MIN_VALUE;
+
+		for(int col = 0; col < cols; col++){
+
+			long bit = next & columns[col];
+			if (bit == 0)
+				continue;
+
+			int score;
+			if ((threats(mine, mine | theirs) & bit) != 0)
+				score = cells - ply;
+			else
+				score = -mtdf(theirs, mine | bit, ply + 1);
+
+			if (score > bestScore || (score == bestScore && centerRank[col] < centerRank[best])){
+				bestScore = score;
+				best = col;
+			}
+		}
+
+		return best;
+	}
+
+	/*
+	 * mtdf finds the exact score with null-window searches. Each one
+	 * proves the score is below or at least a test value, and the next
+	 * test is the value just proved, until the bounds meet.
+	 */
+	private int mtdf(long mine, long theirs, int ply){
+
+		int lower = -cells;
+		int upper = cells;
+		int guess = 0;
+
+		while (lower < upper){
+
+			int test = guess == lower ? guess + 1 : guess;
+			guess = negamax(mine, theirs, ply, test - 1, test);
+
+			if (guess < test)
+				upper = guess;
+			else
+				lower = guess;
+		}
+
+		return guess;
+	}
+
+	/*
+	 * negamax returns the score of the position for the player to move,
+	 * whose pieces are mine, if it is inside (alpha, beta), or a bound
+	 * beyond the window otherwise: at most alpha, or at least beta.
+	 */
+	private int negamax(long mine, long theirs, int ply, int alpha, int beta){
+
+		nodes++;
+
+		long occupied = mine | theirs;
+		long next = playable(occupied);                     //where a piece can go now
+
+		if (next == 0)
+			return 0;                                       //full board, a draw
+
+		//a win with the next piece
+		if ((threats(mine, occupied) & next) != 0)
+			return cells - ply;
+
+		long against = threats(theirs, occupied);
+		long mustBlock = against & next;
+		if (Long.bitCount(mustBlock) > 1)
+			return -(cells - ply - 1);                      //they win with their next piece
+
+		long candidates = mustBlock != 0 ? mustBlock : next;
+		candidates &= ~(against >>> 1);                     //playing under their threat lets them win
+		if (candidates == 0)
+			return -(cells - ply - 1);
+
+		//we cannot win before our piece after next, and they cannot win
+		//with their next one
+		int most = ply + 3 <= cells ? cells - ply - 2 : 0;
+		int least = ply + 4 <= cells ? -(cells - ply - 3) : 0;
+
+		long scrambled = key(mine, occupied) * SCRAMBLE & KEY_MASK;
+		int bucket = (int) (scrambled >>> tagBits) << 1;
+		long tag = scrambled & tagMask;
+
+		int slot = find(bucket, tag);
+		int tableMove = -1;
+		if (slot >= 0){
+			long entry = table[slot];
+			most = Math.min(most, upper(entry));
+			least = Math.max(least, lower(entry));
+			tableMove = bestColumn(entry);
+		}
+
+		if (most <= alpha)
+			return most;
+		if (least >= beta)
+			return least;
+		if (most == least)
+			return most;
+
+		int alphaStart = alpha = Math.max(alpha, least);
+		beta = Math.min(beta, most);
+
+		int count = order(mine, occupied, candidates, ply, tableMove);
+		int[] list = moveLists[ply];
+		int value = Integer.MIN_VALUE;
+		int best = -1;
+
+		for(int i = 0; i < count; i++){
+
+			long bit = next & columns[list[i]];
+
+			int score = -negamax(theirs, mine | bit, ply + 1, -beta, -alpha);
+
+			if (score > value){
+				value = score;
+				best = list[i];
+			}
+			if (value > alpha)
+				alpha = value;
+			if (alpha >= beta)
+				break;
+		}
+
+		//a move that failed low is no better than the others, so it is
+		//not kept as the one to try first
+		if (value >= beta)
+			remember(bucket, slot, tag, ply, value, most, best);
+		else if (value <= alphaStart)
+			remember(bucket, slot, tag, ply, least, value, -1);
+		else
+			remember(bucket, slot, tag, ply, value, value, best);
+
+		return value;
+	}
+
+	/*
+	 * order puts the candidate columns in this ply's list, the table's
+	 * best column first, then those making the most threats and then
+	 * those nearest the center, and returns how many there are.
+	 */
+	private int order(long mine, long occupied, long candidates, int ply, int tableMove){
+
+		int[] list = moveLists[ply];
+		int[] scores = moveScores[ply];
+		int count = 0;
+
+		for(int col = 0; col < cols; col++){
+
+			long bit = candidates & columns[col];
+			if (bit == 0)
+				continue;
+
+			int score = col == tableMove ? Integer.MAX_VALUE
+					: Long.bitCount(threats(mine | bit, occupied | bit)) * 2 * cols - centerRank[col];
+
+			int i = count++;
+			while (i > 0 && scores[i - 1] < score){
+				scores[i] = scores[i - 1];
+				list[i] = list[i - 1];
+				i--;
+			}
+			scores[i] = score;
+			list[i] = col;
+		}
+
+		return count;
+	}
+
+	/*
+	 * threats returns the empty cells, playable now or not, where a
+	 * piece would complete a line of four with the pieces in b. Along
+	 * a column only the cell on top of three can; along a row or a
+	 * diagonal the empty cell can be any of the four in the line.
+	 */
+	private long threats(long b, long occupied){
+
+		long found = (b << 1) & (b << 2) & (b << 3);
+
+		for(int i = 1; i < 4; i++){
+			int s = shifts[i];
+			long before = (b << s) & (b << 2 * s);          //pieces on the two cells before
+			long after = (b >>> s) & (b >>> 2 * s);         //and on the two cells after
+
+			found |= before & ((b << 3 * s) | (b >>> s));
+			found |= after & ((b >>> 3 * s) | (b << s));
+		}
+
+		return found & board & ~occupied;
+	}
+
+	//the cell above the top piece of every column that is not full
+	private long playable(long occupied){
+		return (occupied + bottom) & board;
+	}
+
+	/*
+	 * key identifies a position in KEY_BITS bits: the mover's pieces
+	 * plus the first empty cell of each column, which marks how high
+	 * the column is. The smaller of the keys of the position and of its
+	 * mirror image is used, as both have the same score.
+	 */
+	private long key(long mine, long occupied){
+
+		long key = mine | (occupied + bottom);
+		long mirror = 0;
+		for(int col = 0; col < cols; col++){
+			long column = (key >>> (col * height1)) & ((1L << height1) - 1);
+			mirror |= column << ((cols - 1 - col) * height1);
+		}
+
+		return Math.min(key, mirror);
+	}
+
+	/*
+	 * find returns the slot of the bucket holding the position with tag,
+	 * or -1.
+	 */
+	private int find(int bucket, long tag){
+
+		long entry = table[bucket];
+		if (entry != 0 && (entry & tagMask) == tag)
+			return bucket;
+		entry = table[bucket + 1];
+		if (entry != 0 && (entry & tagMask) == tag)
+			return bucket + 1;
+
+		return -1;
+	}
+
+	/*
+	 * remember stores bounds and a best column (-1 for none) for a
+	 * position. If slot already holds it the tighter bounds are kept,
+	 * and the old column if there is no new one. Otherwise the position
+	 * takes the first entry of its bucket if it is at least as near
+	 * the root as the one there, which moves to the second, or else
+	 * takes the second.
+	 */
+	private void remember(int bucket, int slot, long tag, int ply, int lower, int upper, int best){
+
+		if (slot >= 0){
+			long old = table[slot];
+			lower = Math.max(lower, lower(old));
+			upper = Math.min(upper, upper(old));
+			if (best < 0)
+				best = bestColumn(old);
+		}
+
+		long entry = tag | (long) (lower + BIAS) << tagBits | (long) (upper + BIAS) << (tagBits + 7)
+				| (long) (best + 1) << (tagBits + 14) | (long) ply << (tagBits + 18);
+
+		if (slot >= 0)
+			table[slot] = entry;
+		else if (table[bucket] == 0 || ply <= ply(table[bucket])){
+			table[bucket + 1] = table[bucket];
+			table[bucket] = entry;
+		}
+		else
+			table[bucket + 1] = entry;
+	}
+
+	private int lower(long entry){ return (int) (entry >>> tagBits & 0x7F) - BIAS; }
+
+	private int upper(long entry){ return (int) (entry >>> (tagBits + 7) & 0x7F) - BIAS; }
+
+	private int bestColumn(long entry){ return (int) (entry >>> (tagBits + 14) & 0xF) - 1; }
+
+	private int ply(long entry){ return (int) (entry >>> (tagBits + 18) & 0x3F); }
+
+	/*
+	 * Solves positions given as strings of columns played, numbered
+	 * from 1 the way solvers usually write them, e.g. "4453".
+	 * Usage: java Solver [moves ...]
+	 */
+	public static void main(String[] args){
+
+		Solver solver = new Solver();
+
+		if (args.length == 0)
+			args = new String[] { "" };
+
+		for(String moves : args){
+
+			Position position = new Position(6, 7);
+			for(int i = 0; i < moves.length(); i++)
+				position.play(moves.charAt(i) - '1', i % 2 == 0 ? Position.RED : Position.BLUE);
+
+			long start = System.currentTimeMillis();
+			int score = solver.solve(position);
+			System.out.println(moves + " " + score + " (" + solver.nodes() + " nodes, "
+					+ (System.currentTimeMillis() - start) + " ms)");
+		}
+	}
+}
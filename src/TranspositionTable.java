@@ -0,0 +1,105 @@
+/*
+ * File: TranspositionTable.java
+ * Author: ConnectFourJava contributors
+ * Date: 10/17/26
+ *
+ * Purpose: This class remembers positions that Player has already
+ * searched so that the same position reached by a different move
+ * order is not searched again. It is a fixed-size table indexed by
+ * the low bits of the Position hash; each slot keeps the full hash
+ * to tell positions apart, the depth searched, the score, whether
+ * the score is exact or only a bound, and the best column found.
+ *
+ * The table can be shared by several searching threads without locks.
+ * Each slot is two longs: the entry packed into one, and the hash
+ * XOR the entry in the other. If two threads write the same slot at
+ * once and a reader sees half of each, the XOR no longer matches the
+ * hash and the slot is treated as empty instead of giving a wrong
+ * score.
+ *
+ * Associated Files: Player.java, Position.java
+ */
+
+public class TranspositionTable {
+
+	// bound types
+	public static final int EXACT = 0;
+	public static final int LOWER = 1;               //score is at least this
+	public static final int UPPER = 2;               //score is at most this
+
+	private final int mask;
+	private final long[] checks;                     //hash ^ entry
+	private final long[] entries;                    //0 for an empty slot
+
+	/*
+	 * Creates a table with 2^bits slots.
+	 */
+	public TranspositionTable(int bits){
+
+		int size = 1 << bits;
+		mask = size - 1;
+		checks = new long[size];
+		entries = new long[size];
+	}
+
+	/*
+	 * clear empties every slot. It must not be called while another
+	 * thread is searching.
+	 */
+	public void clear(){
+
+		for(int i = 0; i < entries.length; i++){
+			checks[i] = 0;
+			entries[i] = 0;
+		}
+	}
+
+	/*
+	 * probe returns the packed entry for key, or 0 if the position
+	 * is not in the table. Use depth, score, flag and move to read it.
+	 */
+	public long probe(long key){
+
+		int slot = (int) key & mask;
+		long entry = entries[slot];
+
+		if (entry != 0 && (checks[slot] ^ entry) == key)
+			return entry;
+
+		return 0;
+	}
+
+	/*
+	 * An entry keeps the score in the low 32 bits, then depth + 1 (so
+	 * no stored entry is 0), the bound type and the move + 1.
+	 */
+	public static int score(long entry){ return (int) entry; }
+
+	public static int depth(long entry){ return (int) (entry >>> 32 & 0xFF) - 1; }
+
+	public static int flag(long entry){ return (int) (entry >>> 40 & 0xFF); }
+
+	public static int move(long entry){ return (int) (entry >>> 48 & 0xFF) - 1; }
+
+	/*
+	 * store saves a search result. A slot holding another position is
+	 * always replaced, but a deeper result for the same position is
+	 * kept over a shallower one.
+	 */
+	public void store(long key, int depth, int score, int flag, int move){
+
+		int slot = (int) key & mask;
+		long old = entries[slot];
+
+		if (old != 0 && (checks[slot] ^ old) == key && depth(old) > depth)
+			return;
+
+		long entry = (score & 0xFFFFFFFFL)
+				| (long) (Math.min(depth, 254) + 1) << 32
+				| (long) flag << 40
+				| (long) (move + 1) << 48;
+
+		entries[slot] = entry;
+		checks[slot] = key ^ entry;
+	}
+}
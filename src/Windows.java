@@ -0,0 +1,175 @@
+/*
+ * File: Windows.java
+ * Author: ConnectFourJava contributors
+ * Date: 10/17/26
+ *
+ * Purpose: This class lists every window of K cells that could make a
+ * line of K on a board of a given size: horizontal, vertical,
+ * diagonally-up and diagonally-down. K is 4 for Connect Four but can
+ * be any length that fits the board. It is built once per board size
+ * and K and shared, so win detection and evaluation are a single loop
+ * over a flat table instead of a set of hand-written loops per
+ * direction.
+ *
+ * Cells are numbered column by column from the bottom, so the cell at
+ * height h (0 = bottom) of column col is col * rows + h.
+ *
+ * Associated Files: Position.java, Player.java
+ */
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class Windows {
+
+	public static final int LENGTH = 4;                       //cells in a window unless given
+
+	private static final Map<Long, Windows> tables = new ConcurrentHashMap<Long, Windows>();
+
+	private final int rows;
+	private final int cols;
+	private final int length;                                 //cells in a window, K
+	private final int count;
+	private final int[] cells;                                //length cells per window, one window after another
+	private final int[] cellStart;                            //windows through cell c are cellWindows[cellStart[c] .. cellStart[c + 1]]
+	private final int[] cellWindows;
+	private final int[] rowOf;                                //GUI row and column of each cell
+	private final int[] colOf;
+
+	/*
+	 * of returns the shared table of windows of LENGTH for a board size.
+	 */
+	public static Windows of(int rows, int cols){
+		return of(rows, cols, LENGTH);
+	}
+
+	/*
+	 * of returns the shared table of windows of length cells for a board
+	 * size, building it the first time they are asked for.
+	 */
+	public static Windows of(int rows, int cols, int length){
+
+		if (length < 2 || length > Math.max(rows, cols))
+			throw new IllegalArgumentException("no line of " + length + " fits a " + rows + "x" + cols + " board");
+
+		Long size = ((long) rows << 40) | ((long) cols << 20) | length;
+		Windows windows = tables.get(size);
+
+		if (windows == null){
+			windows = new Windows(rows, cols, length);
+			Windows built = tables.putIfAbsent(size, windows);
+			if (built != null)
+				windows = built;
+		}
+
+		return windows;
+	}
+
+	private Windows(int rows, int cols, int length){
+
+		this.rows = rows;
+		this.cols = cols;
+		this.length = length;
+
+		int[] found = new int[4 * rows * cols * length];
+		int n = 0;
+
+		// direction steps: horizontal, vertical, diagonally-up, diagonally-down
+		for (int dir = 0; dir < 4; dir++) {
+			int colStep = dir == 1 ? 0 : 1;
+			int heightStep = dir == 0 ? 0 : (dir == 3 ? -1 : 1);
+
+			for (int col = 0; col + (length - 1) * colStep < cols; col++) {
+				for (int h = 0; h < rows; h++) {
+
+					int hEnd = h + (length - 1) * heightStep;
+					if (hEnd < 0 || hEnd >= rows)
+						continue;
+
+					for (int k = 0; k < length; k++)
+						found[n++] = cell(h + k * heightStep, col + k * colStep);
+				}
+			}
+		}
+
+		count = n / length;
+		cells = new int[n];
+		System.arraycopy(found, 0, cells, 0, n);
+
+		//count the windows through each cell, then fill them in
+		cellStart = new int[rows * cols + 1];
+		for (int i = 0; i < n; i++)
+			cellStart[cells[i] + 1]++;
+		for (int c = 0; c < rows * cols; c++)
+			cellStart[c + 1] += cellStart[c];
+
+		rowOf = new int[rows * cols];
+		colOf = new int[rows * cols];
+		for (int c = 0; c < rows * cols; c++) {
+			rowOf[c] = rows - 1 - c % rows;
+			colOf[c] = c / rows;
+		}
+
+		cellWindows = new int[n];
+		int[] next = new int[rows * cols];
+		System.arraycopy(cellStart, 0, next, 0, rows * cols);
+		for (int i = 0; i < n; i++)
+			cellWindows[next[cells[i]]++] = i / length;
+	}
+
+	public int rows(){ return rows; }
+
+	public int cols(){ return cols; }
+
+	/*
+	 * length returns the cells in each window, K.
+	 */
+	public int length(){ return length; }
+
+	/*
+	 * count returns the number of windows on the board.
+	 */
+	public int count(){ return count; }
+
+	/*
+	 * cell returns the cell number for height h (0 = bottom) of col.
+	 */
+	public int cell(int h, int col){
+		return col * rows + h;
+	}
+
+	/*
+	 * windowCell returns cell k (0 to length - 1) of window w.
+	 */
+	public int windowCell(int w, int k){
+		return cells[w * length + k];
+	}
+
+	/*
+	 * rowOf and colOf turn a cell number back into GUI coordinates,
+	 * where row 0 is the top of the board.
+	 */
+	public int rowOf(int cell){
+		return rowOf[cell];
+	}
+
+	public int colOf(int cell){
+		return colOf[cell];
+	}
+
+	/*
+	 * firstThrough and endThrough bound the windows through a cell in
+	 * the shared array returned by through().
+	 */
+	public int firstThrough(int cell){
+		return cellStart[cell];
+	}
+
+	public int endThrough(int cell){
+		return cellStart[cell + 1];
+	}
+
+	public int[] through(){
+		return cellWindows;
+	}
+}